@@ -0,0 +1,223 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ *  Non-blocking route queries for event-loop callers. Each query runs on an executor and
+ *  completes a CompletableFuture, so the calling thread never waits for a search.
+ *  <p>
+ *  Submissions are bounded: at most 'capacity' searches may be queued or running at once.
+ *  Beyond that the rejection policy applies, either failing the future at once (ABORT) or
+ *  running the search on the calling thread (CALLER_RUNS, which slows the caller down to the
+ *  pace of the workers). The bound is kept here with a semaphore rather than in the executor's
+ *  queue, so it also holds for executors whose queue is unbounded (e.g. virtual threads).
+ *  <p>
+ *  Identical queries in flight at the same time are coalesced: a query for the same origin,
+ *  destination and RouteService as a pending one shares its search instead of starting another,
+ *  and takes no slot of the bound. Names are resolved to ids first, so "canada", "Canada" and
+ *  other accepted spellings count as the same query; unknown names complete at once with an
+ *  empty path. Every caller gets its own copy of the shared future, so cancelling one caller's
+ *  future does not affect the others, and the shared path is unmodifiable, so no caller can
+ *  change another's result. A query made after the service
+ *  was swapped (border update, reload) never joins a search on the older graph.
+ */
+public final class AsyncRouter implements AutoCloseable {
+    /**
+     *  What happens to a query submitted while 'capacity' searches are pending
+     */
+    public enum Rejection {
+        /** Fail the returned future with a RejectedExecutionException */
+        ABORT,
+        /** Run the search on the submitting thread */
+        CALLER_RUNS
+    }
+
+    /**
+     *  Key of a pending search: the service and the resolved ids, so every spelling
+     *  NameIndex accepts for a country shares the same search
+     */
+    private record Query(RouteService service, int source, int target) {
+    }
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final Supplier<RouteService> routes;
+    private final Executor executor;
+    private final ExecutorService owned;        //  Shut down by close(), null if the caller owns the executor
+    private final int capacity;
+    private final Rejection policy;
+    private final Semaphore slots;
+    private final ConcurrentHashMap<Query, CompletableFuture<List<String>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     *  Creates a router running on a pool of its own daemon threads, shut down by close()
+     * @param routes   Supplier of the service answering the queries (see GraphReloader)
+     * @param threads  Number of worker threads
+     * @param capacity Most searches queued or running at once
+     * @param policy   What to do with queries beyond the capacity
+     */
+    public AsyncRouter (Supplier<RouteService> routes, int threads, int capacity, Rejection policy) {
+        this(routes, Executors.newFixedThreadPool(Math.max(1, threads), daemonThreads()), capacity, policy, true);
+    }
+
+    /**
+     *  Creates a router running on the caller's executor, which close() leaves running
+     * @param routes   Supplier of the service answering the queries (see GraphReloader)
+     * @param executor Executor running the searches
+     * @param capacity Most searches queued or running at once
+     * @param policy   What to do with queries beyond the capacity
+     */
+    public AsyncRouter (Supplier<RouteService> routes, Executor executor, int capacity, Rejection policy) {
+        this(routes, executor, capacity, policy, false);
+    }
+
+    private AsyncRouter (Supplier<RouteService> routes, Executor executor, int capacity, Rejection policy, boolean owned) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, got " + capacity);
+        }
+        this.routes = routes;
+        this.executor = executor;
+        this.owned = owned ? (ExecutorService) executor : null;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.slots = new Semaphore(capacity);
+    }
+
+    /**
+     * @return Factory of daemon threads named iroadtrip-async-0, -1, ...
+     */
+    private static ThreadFactory daemonThreads () {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "iroadtrip-async-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     *  Finds the shortest path between two countries without blocking the caller
+     *  (unless the router is full and the policy is CALLER_RUNS)
+     * @param from Originating country
+     * @param to   Destination country
+     * @return Future of the names on the path, as RouteService.findPath returns them but unmodifiable.
+     *         Fails with a RejectedExecutionException if the router is full (ABORT) or the executor
+     *         refused the task
+     */
+    public CompletableFuture<List<String>> findPathAsync (String from, String to) {
+        RouteService service = routes.get();
+        CountryGraph graph = service.getGraph();
+        Query query = new Query(service, graph.idOf(from), graph.idOf(to));
+        if (query.source() < 0 || query.target() < 0) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        CompletableFuture<List<String>> created = new CompletableFuture<>();
+        CompletableFuture<List<String>> pending = inFlight.putIfAbsent(query, created);
+        if (pending != null) {
+            coalesced.incrementAndGet();
+            return pending.copy();
+        }
+
+        if (slots.tryAcquire()) {
+            try {
+                executor.execute(() -> search(query, created, true));
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                reject(query, created, e);
+            }
+        }
+        else if (policy == Rejection.CALLER_RUNS) {
+            search(query, created, false);
+        }
+        else {
+            reject(query, created, new RejectedExecutionException(
+                    "Route queue is full (" + capacity + " pending searches)"));
+        }
+        return created.copy();
+    }
+
+    /**
+     *  Runs one search and completes the shared future of its query
+     * @param holdsSlot True if the search took a slot of the bound
+     */
+    private void search (Query query, CompletableFuture<List<String>> result, boolean holdsSlot) {
+        searches.incrementAndGet();
+        try {
+            result.complete(List.copyOf(query.service().findRoute(query.source(), query.target()).path()));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        } finally {
+            inFlight.remove(query, result);
+            if (holdsSlot) {
+                slots.release();
+            }
+        }
+    }
+
+    private void reject (Query query, CompletableFuture<List<String>> result, RejectedExecutionException e) {
+        rejected.incrementAndGet();
+        inFlight.remove(query, result);
+        result.completeExceptionally(e);
+    }
+
+    /**
+     * @return Searches queued or running right now
+     */
+    public int getPending () {
+        return capacity - slots.availablePermits();
+    }
+
+    public int getCapacity () {
+        return capacity;
+    }
+
+    public Rejection getPolicy () {
+        return policy;
+    }
+
+    /**
+     * @return Searches run so far, on workers or on callers
+     */
+    public long getSearches () {
+        return searches.get();
+    }
+
+    /**
+     * @return Queries that shared the search of an identical pending query
+     */
+    public long getCoalesced () {
+        return coalesced.get();
+    }
+
+    /**
+     * @return Queries failed because the router was full or the executor refused them
+     */
+    public long getRejected () {
+        return rejected.get();
+    }
+
+    /**
+     *  Shuts down the router's own pool, if it has one. Pending searches still complete.
+     */
+    @Override
+    public void close () {
+        if (owned != null) {
+            owned.shutdown();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ *  Non-interactive routing of many origin/destination pairs.
+ *  Input is read line by line, one pair per line: "origin<TAB>destination" or
+ *  "origin,destination" (CSV quoting allowed, e.g. "Korea, North",Japan). Blank lines and
+ *  lines starting with '#' are skipped.
+ *  <p>
+ *  Lines are grouped into blocks which are routed and formatted on a fixed pool of workers,
+ *  either one made for each run or a pool shared by many runs (e.g. every /batch request of
+ *  RouteServer).
+ *  At most 'window' blocks are in flight; the reading thread waits for the oldest block
+ *  and writes it before reading more, so results come out in input order and memory use
+ *  stays bounded no matter how long the input is.
+ */
+public final class BatchRouter {
+    private static final int BLOCK_SIZE = 512;
+
+    /**
+     *  Output format, one line per pair
+     */
+    public enum Format {
+        /** origin,destination,status,distance_km,path (path joined with ';') */
+        CSV,
+        /** One JSON object per line */
+        JSONL
+    }
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final Supplier<RouteService> routes;
+    private final Format format;
+    private final int threads;
+    private final int window;
+    private final ExecutorService workers;      //  Shared pool, or null to make one per run
+
+    /**
+     *  Creates a router over one RouteService
+     * @param routes  Service answering the queries
+     * @param format  Output format
+     * @param threads Number of worker threads
+     */
+    public BatchRouter (RouteService routes, Format format, int threads) {
+        this(() -> routes, format, threads);
+    }
+
+    /**
+     *  Creates a router that reads the current RouteService for every pair (see GraphReloader)
+     * @param routes  Supplier of the service answering the queries
+     * @param format  Output format
+     * @param threads Number of worker threads
+     */
+    public BatchRouter (Supplier<RouteService> routes, Format format, int threads) {
+        this(routes, format, null, threads);
+    }
+
+    /**
+     *  Creates a router that runs its blocks on the caller's pool, which run() leaves running
+     * @param routes  Supplier of the service answering the queries
+     * @param format  Output format
+     * @param workers Pool routing the blocks, or null to make a pool of 'threads' for every run
+     * @param threads Number of worker threads (the pool's size, sets how many blocks are in flight)
+     */
+    public BatchRouter (Supplier<RouteService> routes, Format format, ExecutorService workers, int threads) {
+        this.routes = routes;
+        this.format = format;
+        this.workers = workers;
+        this.threads = Math.max(1, threads);
+        this.window = this.threads * 4;
+    }
+
+    /**
+     *  Routes every pair read from 'in' and writes one result line per pair to 'out'
+     * @param in  Source of origin/destination pairs
+     * @param out Destination of the results, flushed but not closed
+     * @return Number of pairs routed
+     */
+    public long run (BufferedReader in, Writer out) throws IOException {
+        ExecutorService executor = workers != null ? workers : Executors.newFixedThreadPool(threads);
+        Deque<Future<String>> inFlight = new ArrayDeque<>(window);
+        long pairs = 0;
+        try {
+            if (format == Format.CSV) {
+                out.write("origin,destination,status,distance_km,path\n");
+            }
+
+            List<String> block = new ArrayList<>(BLOCK_SIZE);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                block.add(line);
+                pairs++;
+                if (block.size() == BLOCK_SIZE) {
+                    if (inFlight.size() == window) {
+                        out.write(await(inFlight.poll()));
+                    }
+                    List<String> lines = block;
+                    inFlight.add(executor.submit(() -> routeBlock(lines)));
+                    block = new ArrayList<>(BLOCK_SIZE);
+                }
+            }
+            if (!block.isEmpty()) {
+                List<String> lines = block;
+                inFlight.add(executor.submit(() -> routeBlock(lines)));
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(await(inFlight.poll()));
+            }
+            out.flush();
+            return pairs;
+        } finally {
+            if (executor != workers) {
+                executor.shutdownNow();
+            }
+            else {
+                //  Failed part way: free the shared pool of the blocks nobody will write
+                for (Future<String> block : inFlight) {
+                    block.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static String await (Future<String> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while routing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     *  Routes and formats one block of input lines
+     * @return The formatted result lines of the block
+     */
+    private String routeBlock (List<String> lines) {
+        StringBuilder out = new StringBuilder(lines.size() * 96);
+
+        for (String line : lines) {
+            String[] pair = parsePair(line);
+            if (pair == null) {
+                append(out, line, "", "invalid", -1, null, null);
+                continue;
+            }
+            routePair(out, pair[0], pair[1]);
+        }
+        return out.toString();
+    }
+
+    /**
+     *  Routes one pair and appends its result line
+     * @param out         Destination of the formatted line
+     * @param origin      Origin country as given
+     * @param destination Destination country as given
+     * @return Status written: "ok", "unknown" or "unreachable"
+     */
+    String routePair (StringBuilder out, String origin, String destination) {
+        //  One snapshot for the whole pair, ids are only valid within it
+        RouteService service = routes.get();
+        CountryGraph graph = service.getGraph();
+        int source = graph.idOf(origin);
+        int target = graph.idOf(destination);
+        if (source < 0 || target < 0) {
+            return append(out, origin, destination, "unknown", -1, null, null);
+        }
+
+        int[] path = service.sharedRoute(source, target);
+        if (path.length == 0) {
+            return append(out, origin, destination, "unreachable", -1, null, null);
+        }
+        int distance = 0;
+        for (int i = 1; i < path.length; i++) {
+            distance += graph.edgeWeight(path[i - 1], path[i]);
+        }
+        return append(out, origin, destination, "ok", distance, path, graph);
+    }
+
+    /**
+     *  Splits a line into origin and destination
+     * @return The two names, or null if the line does not hold exactly two
+     */
+    static String[] parsePair (String line) {
+        int tab = line.indexOf('\t');
+        if (tab >= 0) {
+            return line.indexOf('\t', tab + 1) < 0
+                    ? new String[]{unquote(line.substring(0, tab)), unquote(line.substring(tab + 1))}
+                    : null;
+        }
+
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                //  "" inside quotes is a literal quote
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                }
+                else {
+                    quoted = !quoted;
+                }
+            }
+            else if (c == ',' && !quoted) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            }
+            else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.size() == 2 ? fields.toArray(new String[0]) : null;
+    }
+
+    private static String unquote (String field) {
+        String trimmed = field.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    private String append (StringBuilder out, String origin, String destination, String status, int distance,
+                           int[] path, CountryGraph graph) {
+        if (format == Format.CSV) {
+            csv(out, origin).append(',');
+            csv(out, destination).append(',').append(status).append(',');
+            if (path != null) {
+                out.append(distance).append(',');
+                StringBuilder names = new StringBuilder();
+                for (int i = 0; i < path.length; i++) {
+                    names.append(i == 0 ? "" : ";").append(graph.nameOf(path[i]));
+                }
+                csv(out, names.toString());
+            }
+            else {
+                out.append(',');
+            }
+            out.append('\n');
+            return status;
+        }
+
+        out.append("{\"origin\":");
+        json(out, origin).append(",\"destination\":");
+        json(out, destination).append(",\"status\":\"").append(status).append('"');
+        if (path != null) {
+            out.append(",\"distance_km\":").append(distance).append(",\"path\":[");
+            for (int i = 0; i < path.length; i++) {
+                json(out.append(i == 0 ? "" : ","), graph.nameOf(path[i]));
+            }
+            out.append(']');
+        }
+        out.append("}\n");
+        return status;
+    }
+
+    private static StringBuilder csv (StringBuilder out, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return out.append(value);
+        }
+        return out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     *  Appends value as a quoted and escaped JSON string
+     */
+    static StringBuilder json (StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    }
+                    else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+}
@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *  Benchmark cases for the loading, lookup and routing hot paths, measured with JMH by the
+ *  classes in jmh/ (built by pom.xml). JMH rejects benchmark classes in the default package and
+ *  a named package cannot refer to the classes of this one, so each JMH benchmark looks up
+ *  operation() once per trial and calls the LongSupplier it returns. Everything a case needs
+ *  is built before it is returned, so only the measured work runs in the supplier.
+ *  <p>
+ *  Run from the directory holding the data files:
+ *  mvn -q package && java -jar target/benchmarks.jar -rf json -rff benchmark-results.json
+ *  java Benchmarks [benchmark-results.json]    prints the speedup of every strategy over DIJKSTRA
+ */
+public class Benchmarks {
+    private static final String[] FILES = {"borders.txt", "capdist.csv", "state_name.tsv"};
+    private static final Pattern RESULT = Pattern.compile(
+            "\"benchmark\"\\s*:\\s*\"[^\"]*\\.(\\w+)\".*?\"dataset\"\\s*:\\s*\"([^\"]+)\".*?"
+                    + "\"strategy\"\\s*:\\s*\"([^\"]+)\".*?\"score\"\\s*:\\s*([-0-9.Ee]+)", Pattern.DOTALL);
+
+    private static IRoadTrip trip;              //  Loaded bundled data, shared by the cases of one fork
+    private static String finderKey;            //  Dataset and strategy of 'finder'
+    private static CountryGraph finderGraph;    //  Graph of 'finder'
+    private static PathFinder finder;           //  Last finder built, shared by the random and worst cases
+
+    private Benchmarks () {
+    }
+
+    /**
+     *  Builds one benchmark case
+     * @param name     Case name, e.g. "PathFinder.dijkstra.random"
+     * @param dataset  "bundled" or "synthetic-{size}" (routing cases only)
+     * @param strategy PathFinder.Strategy name (routing cases only)
+     * @return The measured operation; its result must be consumed so the JIT keeps the work
+     */
+    public static LongSupplier operation (String name, String dataset, String strategy) {
+        return switch (name) {
+            case "IRoadTrip.construct.snapshot" -> {
+                bundled();
+                yield () -> quietly(() -> new IRoadTrip(FILES)).hashCode();
+            }
+            case "IRoadTrip.construct.parse" -> {
+                bundled();
+                yield () -> {
+                    System.setProperty("iroadtrip.snapshot", "");
+                    try {
+                        return quietly(() -> new IRoadTrip(FILES)).hashCode();
+                    } finally {
+                        System.clearProperty("iroadtrip.snapshot");
+                    }
+                };
+            }
+            case "IRoadTrip.readCapDistance" -> {
+                IRoadTrip loaded = bundled();
+                yield () -> loaded.readCapDistance("capdist.csv").size();
+            }
+            case "IRoadTrip.setBorders" -> {
+                IRoadTrip loaded = bundled();
+                List<Dictionary<String, List<String>>> borders = quietly(() -> loaded.readBorders("borders.txt"));
+                CapDistTable capDist = loaded.readCapDistance("capdist.csv");
+                yield () -> {
+                    loaded.setBorders(borders, capDist);
+                    return borders.size();
+                };
+            }
+            case "Countries.findCountry" -> findCountry();
+            case "Country.getNeighborDist" -> getNeighborDist();
+            case "PathFinder.dijkstra.random", "PathFinder.dijkstra.worst" -> {
+                PathFinder pathFinder = pathFinder(dataset, strategy);
+                int[][] pairs = name.endsWith("random")
+                        ? randomPairs(finderGraph, 256, 7) : worstPairs(finderGraph, 16);
+                yield cycle(pairs.length, i -> pathFinder.dijkstra(pairs[i][0], pairs[i][1]).length);
+            }
+            default -> throw new IllegalArgumentException("Unknown benchmark: " + name);
+        };
+    }
+
+    /**
+     *  Prints how many times faster every strategy is than DIJKSTRA, per routing benchmark and dataset
+     * @param args JMH result file written with -rf json (default benchmark-results.json)
+     */
+    public static void main (String[] args) throws IOException {
+        String json = Files.readString(Path.of(args.length > 0 ? args[0] : "benchmark-results.json"));
+        Map<String, Double> baselines = new LinkedHashMap<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+        //  One match per result entry: method, dataset, strategy, primary score
+        for (String entry : json.split("\"jmhVersion\"")) {
+            Matcher m = RESULT.matcher(entry);
+            if (m.find()) {
+                String key = m.group(1) + " dataset=" + m.group(2);
+                double score = Double.parseDouble(m.group(4));
+                if (m.group(3).equals(PathFinder.Strategy.DIJKSTRA.name())) {
+                    baselines.put(key, score);
+                }
+                else {
+                    scores.put(key + ",strategy=" + m.group(3), score);
+                }
+            }
+        }
+        scores.forEach((key, score) -> {
+            Double baseline = baselines.get(key.substring(0, key.indexOf(",strategy=")));
+            if (baseline != null) {
+                System.out.printf(Locale.ROOT, "%-70s %8.1fx vs DIJKSTRA%n", key, baseline / score);
+            }
+        });
+    }
+
+    /**
+     *  Loads the bundled files once, which also populates the Countries map
+     */
+    private static IRoadTrip bundled () {
+        if (trip == null) {
+            trip = quietly(() -> new IRoadTrip(FILES));
+        }
+        return trip;
+    }
+
+    /**
+     *  Lookups over every known name, in mixed case like user input
+     */
+    private static LongSupplier findCountry () {
+        bundled();
+        Countries map = Countries.getInstance();
+        List<String> names = new ArrayList<>();
+        for (Country country : map.countries.values()) {
+            names.add(country.getName().toUpperCase(Locale.ROOT));
+        }
+        return cycle(names.size(), i -> map.findCountry(names.get(i)).hashCode());
+    }
+
+    private static LongSupplier getNeighborDist () {
+        bundled();
+        List<Country> origins = new ArrayList<>();
+        List<String> neighbors = new ArrayList<>();
+        for (Country country : Countries.getInstance().countries.values()) {
+            for (Country.Neighbor neighbor : country.getNeighbors()) {
+                origins.add(country);
+                neighbors.add(neighbor.getName());
+            }
+        }
+        return cycle(origins.size(), i -> origins.get(i).getNeighborDist(neighbors.get(i)));
+    }
+
+    /**
+     *  Builds the finder of a routing case, or reuses the last one if it is for the same dataset and strategy
+     */
+    private static PathFinder pathFinder (String dataset, String strategy) {
+        String key = dataset + "/" + strategy;
+        if (!key.equals(finderKey)) {
+            finderGraph = graph(dataset);
+            finder = new PathFinder(finderGraph, PathFinder.Strategy.valueOf(strategy));
+            finderKey = key;
+            if (finder.getHierarchy() != null) {
+                System.out.println(finder.getHierarchy().report());
+            }
+        }
+        return finder;
+    }
+
+    /**
+     * @param dataset "bundled" or "synthetic-{size}"
+     */
+    private static CountryGraph graph (String dataset) {
+        if (dataset.equals("bundled")) {
+            bundled();
+            return CountryGraph.compile(Countries.getInstance());
+        }
+        if (!dataset.startsWith("synthetic-")) {
+            throw new IllegalArgumentException("Unknown dataset: " + dataset);
+        }
+        long start = System.nanoTime();
+        CountryGraph graph = SyntheticGraph.generate(Integer.parseInt(dataset.substring("synthetic-".length())), 42);
+        System.out.printf("Generated synthetic graph: %d countries, %d edges in %.1f ms%n",
+                graph.size(), graph.edgeCount(), (System.nanoTime() - start) / 1e6);
+        return graph;
+    }
+
+    private interface Step {
+        long run (int index);
+    }
+
+    /**
+     *  One operation per call, going round the inputs 0 .. count-1 in order
+     */
+    private static LongSupplier cycle (int count, Step step) {
+        int[] next = {0};
+        return () -> {
+            int index = next[0];
+            next[0] = index + 1 == count ? 0 : index + 1;
+            return step.run(index);
+        };
+    }
+
+    private static int[][] randomPairs (CountryGraph graph, int count, long seed) {
+        Random random = new Random(seed);
+        int[][] pairs = new int[count][];
+        for (int i = 0; i < count; i++) {
+            pairs[i] = new int[]{random.nextInt(graph.size()), random.nextInt(graph.size())};
+        }
+        return pairs;
+    }
+
+    /**
+     *  Pairs whose Dijkstra search settles the most countries. Uses the endpoints of the
+     *  longest routes from a sample of origins (the whole graph when it is small).
+     */
+    private static int[][] worstPairs (CountryGraph graph, int count) {
+        PathFinder pathFinder = new PathFinder(graph);
+        int[] distance = new int[graph.size()];
+        int[] parent = new int[graph.size()];
+        int step = Math.max(1, graph.size() / 64);
+
+        List<int[]> candidates = new ArrayList<>();
+        for (int source = 0; source < graph.size(); source += step) {
+            pathFinder.shortestPathTree(source, distance, parent);
+            int far = source;
+            for (int id = 0; id < graph.size(); id++) {
+                if (distance[id] != Integer.MAX_VALUE && distance[id] > distance[far]) {
+                    far = id;
+                }
+            }
+            pathFinder.dijkstra(source, far);
+            candidates.add(new int[]{source, far, pathFinder.lastSettled()});
+        }
+        candidates.sort((a, b) -> Integer.compare(b[2], a[2]));
+        return candidates.subList(0, Math.min(count, candidates.size())).toArray(new int[0][]);
+    }
+
+    private interface Loader<T> {
+        T load () throws IOException;
+    }
+
+    /**
+     *  Runs 'loader' with System.out discarded, so loading messages do not flood the report.
+     *  IOExceptions are rethrown unchecked, as the measured operations cannot throw them.
+     */
+    private static <T> T quietly (Loader<T> loader) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return loader.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.Arrays;
+
+/**
+ *  Collects the borders between countries by dense id and hands them out as
+ *  primitive (id, weight, length) triples. Every border is stored both ways. Duplicate borders
+ *  are dropped in O(1) with an open-addressing set of id pairs instead of scanning
+ *  the neighbors of a country; the first distance seen for a pair wins.
+ *  Edges keep insertion order per country. The builder is meant to be discarded
+ *  once the borders have been handed out (see Countries.setNeighbors, CountryGraph.withBorders).
+ */
+final class BorderBuilder {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final int size;
+    private final int[] degree;
+    private int[] from = new int[64];
+    private int[] to = new int[64];
+    private int[] weight = new int[64];
+    private int[] length = new int[64];
+    private int edges;
+    private long[] seen = new long[256];    //  Unordered pair key + 1, 0 marks a free slot
+    private int pairs;
+
+    /**
+     * @param size Number of country ids
+     */
+    BorderBuilder (int size) {
+        this.size = size;
+        this.degree = new int[size];
+    }
+
+    /**
+     *  Adds the border between a and b in both directions unless it is already known
+     * @param a        Id of one country
+     * @param b        Id of the other country
+     * @param distance Distance in km between the capitals
+     * @param km       Length in km of the shared border, 0 if unknown
+     * @return True if the border was added, false for duplicates and self-loops
+     */
+    boolean add (int a, int b, int distance, int km) {
+        if (a == b || !markSeen(a < b ? ((long) a << 32) | b : ((long) b << 32) | a)) {
+            return false;
+        }
+        append(a, b, distance, km);
+        append(b, a, distance, km);
+        return true;
+    }
+
+    /**
+     * @return Number of directed edges (twice the number of borders)
+     */
+    int edgeCount () {
+        return edges;
+    }
+
+    /**
+     *  Packs the neighbors of every country into one exactly sized array per country
+     * @return For each id: {neighbor, weight, length, neighbor, weight, length, ...}
+     */
+    int[][] neighbors () {
+        int[][] out = new int[size][];
+        int[] fill = new int[size];
+        for (int id = 0; id < size; id++) {
+            out[id] = new int[3 * degree[id]];
+        }
+        for (int e = 0; e < edges; e++) {
+            int[] list = out[from[e]];
+            int k = 3 * fill[from[e]]++;
+            list[k] = to[e];
+            list[k + 1] = weight[e];
+            list[k + 2] = length[e];
+        }
+        return out;
+    }
+
+    /**
+     *  Lays the edges out in CSR form (see CountryGraph)
+     * @return {offsets, targets, weights, lengths}
+     */
+    int[][] csr () {
+        int[] offsets = new int[size + 1];
+        for (int id = 0; id < size; id++) {
+            offsets[id + 1] = offsets[id] + degree[id];
+        }
+        int[] next = Arrays.copyOf(offsets, size);
+        int[] targets = new int[edges];
+        int[] weights = new int[edges];
+        int[] lengths = new int[edges];
+        for (int e = 0; e < edges; e++) {
+            int slot = next[from[e]]++;
+            targets[slot] = to[e];
+            weights[slot] = weight[e];
+            lengths[slot] = length[e];
+        }
+        return new int[][]{offsets, targets, weights, lengths};
+    }
+
+    private void append (int a, int b, int distance, int km) {
+        if (edges == from.length) {
+            from = Arrays.copyOf(from, edges * 2);
+            to = Arrays.copyOf(to, edges * 2);
+            weight = Arrays.copyOf(weight, edges * 2);
+            length = Arrays.copyOf(length, edges * 2);
+        }
+        from[edges] = a;
+        to[edges] = b;
+        length[edges] = km;
+        weight[edges++] = distance;
+        degree[a]++;
+    }
+
+    /**
+     *  Inserts a pair key into the open-addressing set
+     * @return False if the key was already present
+     */
+    private boolean markSeen (long key) {
+        if (2 * (pairs + 1) > seen.length) {
+            long[] old = seen;
+            seen = new long[old.length * 2];
+            for (long stored : old) {
+                if (stored != 0) {
+                    seen[slot(stored)] = stored;
+                }
+            }
+        }
+        long stored = key + 1;
+        int mask = seen.length - 1;
+        for (int i = (int) mix(stored) & mask; ; i = (i + 1) & mask) {
+            if (seen[i] == stored) {
+                return false;
+            }
+            if (seen[i] == 0) {
+                seen[i] = stored;
+                pairs++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return First free slot for a key being rehashed
+     */
+    private int slot (long stored) {
+        int mask = seen.length - 1;
+        int i = (int) mix(stored) & mask;
+        while (seen[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private static long mix (long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 32);
+    }
+}
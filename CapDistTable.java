@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ *  Distances between capitals keyed by the pair of 3-Letter country codes.
+ *  Filled in one pass over a memory-mapped capdist.csv with a byte-level parser
+ *  (no Strings or split per line) and stored in a primitive open-addressing table:
+ *  both codes are packed into one long key, the distance is kept in a parallel int array.
+ */
+public final class CapDistTable {
+    private static final long EMPTY = 0L;
+    private static final int MISSING = -1;
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     *  Creates an empty table sized for about 'expected' pairs
+     * @param expected Number of pairs expected
+     */
+    public CapDistTable (int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     *  Reads the capdist file in a single pass
+     * @param filename Name of the file to read
+     * @return Table of every (ida, idb) -> kmdist pairing in the file
+     */
+    public static CapDistTable load (String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int length = buffer.limit();
+
+            //  Rows are ~25 bytes, size the table once to avoid rehashing
+            CapDistTable table = new CapDistTable(length / 25);
+            table.parse(buffer, skipLine(buffer, 0), length);
+            return table;
+        }
+    }
+
+    /**
+     *  Reads the capdist file split into 'chunks' line-aligned byte ranges, each parsed
+     *  into its own table on 'executor'. The returned future completes with the merged table.
+     *  Never blocks a thread of the executor, so it is safe to call from one of its tasks.
+     * @param filename Name of the file to read
+     * @param chunks   Number of ranges to parse in parallel
+     * @param executor Executor running one task per range
+     * @return Future table of every pairing in the file
+     */
+    public static CompletableFuture<CapDistTable> loadAsync (String filename, int chunks, Executor executor) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        int length = buffer.limit();
+        int first = skipLine(buffer, 0);
+        int step = Math.max((length - first) / Math.max(chunks, 1), 1);
+
+        List<CompletableFuture<CapDistTable>> parts = new ArrayList<>();
+        for (int from = first; from < length; ) {
+            int to = from + step >= length ? length : skipLine(buffer, from + step);
+            int start = from;
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                CapDistTable part = new CapDistTable((to - start) / 25);
+                part.parse(buffer, start, to);
+                return part;
+            }, executor));
+            from = to;
+        }
+
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            CapDistTable table = new CapDistTable(length / 25);
+            for (CompletableFuture<CapDistTable> part : parts) {
+                table.putAll(part.join());
+            }
+            return table;
+        });
+    }
+
+    /**
+     *  Parses every row starting in [from, to) of buffer into this table.
+     *  'from' must be the start of a row; a row that starts before 'to' is read to its end.
+     * @param buffer Contents of a capdist file
+     * @param from   Offset of the first row to read
+     * @param to     Offset no further row may start at
+     */
+    void parse (MappedByteBuffer buffer, int from, int to) {
+        int limit = buffer.limit();
+        int at = from;
+
+        while (at < to) {
+            //  numa,ida,numb,idb,kmdist,midist
+            at = skipField(buffer, at, limit);
+            int origin = 0;
+            byte b;
+            while (at < limit && (b = buffer.get(at++)) != ',') {
+                origin = (origin << 8) | (b & 0xFF);
+            }
+            at = skipField(buffer, at, limit);
+            int dest = 0;
+            while (at < limit && (b = buffer.get(at++)) != ',') {
+                dest = (dest << 8) | (b & 0xFF);
+            }
+            int distance = 0;
+            while (at < limit && (b = buffer.get(at++)) != ',') {
+                distance = distance * 10 + (b - '0');
+            }
+            at = skipLine(buffer, at);
+
+            if (origin != 0 && dest != 0) {
+                put(normalize(origin), normalize(dest), distance);
+            }
+        }
+    }
+
+    /**
+     *  capdist.csv uses "UK" where state_name.tsv uses "UKG"
+     */
+    private static int normalize (int code) {
+        return code == ('U' << 8 | 'K') ? ('U' << 16 | 'K' << 8 | 'G') : code;
+    }
+
+    private static int skipField (MappedByteBuffer buffer, int at, int limit) {
+        while (at < limit && buffer.get(at++) != ',') {
+            //  Skip to the next field
+        }
+        return at;
+    }
+
+    /**
+     *  Finds the start of the row after the one containing 'at'
+     */
+    static int skipLine (MappedByteBuffer buffer, int at) {
+        int limit = buffer.limit();
+        while (at < limit && buffer.get(at++) != '\n') {
+            //  Skip to the next row
+        }
+        return at;
+    }
+
+    /**
+     *  Packs a code of up to 3 ASCII letters into the low 24 bits of an int
+     * @param code Country code
+     * @return Packed code
+     */
+    public static int packCode (String code) {
+        int packed = 0;
+        for (int i = 0; i < code.length(); i++) {
+            packed = (packed << 8) | (code.charAt(i) & 0xFF);
+        }
+        return normalize(packed);
+    }
+
+    private static long pairKey (int origin, int dest) {
+        return ((long) origin << 24) | dest;
+    }
+
+    private int slot (long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+
+    /**
+     *  Stores (or replaces) the distance from origin to dest
+     * @param origin   Packed origin code
+     * @param dest     Packed destination code
+     * @param distance Distance in km
+     */
+    void put (int origin, int dest, int distance) {
+        long key = pairKey(origin, dest);
+        int at = slot(key);
+        while (keys[at] != EMPTY && keys[at] != key) {
+            at = (at + 1) & mask;
+        }
+        boolean added = keys[at] == EMPTY;
+        keys[at] = key;
+        values[at] = distance;
+
+        //  Keep the load factor at or below 1/2
+        if (added && ++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     *  Copies every pairing of 'other' into this table
+     * @param other Table to merge in
+     */
+    void putAll (CapDistTable other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            long key = other.keys[i];
+            if (key != EMPTY) {
+                put((int) (key >>> 24), (int) (key & 0xFFFFFF), other.values[i]);
+            }
+        }
+    }
+
+    private void grow () {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put((int) (oldKeys[i] >>> 24), (int) (oldKeys[i] & 0xFFFFFF), oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     *  Looks up the distance between two capitals
+     * @param origin 3-Letter code of starting country
+     * @param dest   3-Letter code of the destination country
+     * @return Distance in km, or -1 if the pair is not in the file
+     */
+    public int get (String origin, String dest) {
+        long key = pairKey(packCode(origin), packCode(dest));
+        int at = slot(key);
+        while (keys[at] != EMPTY) {
+            if (keys[at] == key) {
+                return values[at];
+            }
+            at = (at + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public int size () {
+        return size;
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ *  Dense matrix of the capital distance between every pair of countries of a graph, indexed by id,
+ *  so "as the crow flies" lookups for any pair are one read. The matrix lives off-heap: it is
+ *  written to a file once and memory-mapped read-only, so it costs no heap and every JVM on the
+ *  host mapping the same file shares one copy through the page cache. Files are replaced by an
+ *  atomic move, so mappings of an older file stay valid. Without a file the matrix is kept in a
+ *  direct buffer.
+ *  <p>
+ *  Distances are stored as shorts (no two capitals are more than ~20,040 km apart), with -1 for
+ *  pairs the capdist file does not list. The layout (big-endian) follows GraphSnapshot:
+ *  1)  Header: magic, format version, payload length, CRC32 of payload
+ *  2)  Payload: country count, code per country (ids must match the graph's), then the
+ *      count * count matrix, row by row
+ */
+public final class CapitalDistances {
+    private static final int MAGIC = 0x49524344;    //  "IRCD"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 3 + Long.BYTES;
+    private static final short MISSING = -1;
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final int size;
+    private final ShortBuffer matrix;
+    private final ByteBuffer mapping;      //  Keeps the mapped (or direct) memory reachable
+
+    private CapitalDistances (int size, ByteBuffer mapping, int matrixOffset) {
+        this.size = size;
+        this.mapping = mapping;
+        this.matrix = mapping.duplicate().position(matrixOffset).slice().asShortBuffer();
+    }
+
+    /**
+     *  Builds the matrix for the countries of a graph from the capdist table and maps it
+     * @param graph   Graph whose ids index the matrix
+     * @param capDist Table of distances between nation capitals
+     * @param file    File to write and map, or null to keep the matrix in a direct buffer
+     * @return The matrix
+     */
+    public static CapitalDistances create (CountryGraph graph, CapDistTable capDist, Path file) throws IOException {
+        int size = graph.size();
+        ByteBuffer body = ByteBuffer.allocate(payloadBytes(graph));
+        putCodes(body, graph);
+        for (int a = 0; a < size; a++) {
+            for (int b = 0; b < size; b++) {
+                int km = a == b ? 0 : capDist.get(graph.codeOf(a), graph.codeOf(b));
+                if (km > Short.MAX_VALUE) {
+                    throw new IllegalArgumentException(graph.codeOf(a) + "-" + graph.codeOf(b) + " is " + km + " km");
+                }
+                body.putShort(km < 0 ? MISSING : (short) km);
+            }
+        }
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(body.remaining()).putLong(crc.getValue());
+        header.flip();
+
+        if (file == null) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(HEADER_BYTES + body.remaining());
+            direct.put(header).put(body).flip();
+            return new CapitalDistances(size, direct, matrixOffset(graph));
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            while (body.hasRemaining()) {
+                out.write(body);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file, graph);
+    }
+
+    /**
+     *  Memory-maps a matrix written by create
+     * @param file  Matrix file
+     * @param graph Graph the matrix must have been built for
+     * @return The mapped matrix
+     * @throws IOException If the file is unreadable, of another version, fails its checksum
+     *                     or was built for other countries
+     */
+    public static CapitalDistances open (Path file, CountryGraph graph) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        }
+
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not a capital distance matrix");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(file + " has version " + version + ", expected " + VERSION);
+        }
+        int payload = buffer.getInt();
+        long expectedCrc = buffer.getLong();
+        if (payload != payloadBytes(graph) || buffer.remaining() != payload) {
+            throw new IOException(file + " does not match the graph");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException(file + " failed its checksum");
+        }
+
+        ByteBuffer codes = ByteBuffer.allocate(matrixOffset(graph) - HEADER_BYTES);
+        putCodes(codes, graph);
+        if (!buffer.slice(HEADER_BYTES, codes.capacity()).equals(codes.flip())) {
+            throw new IOException(file + " was built for other countries");
+        }
+        return new CapitalDistances(graph.size(), buffer, matrixOffset(graph));
+    }
+
+    /**
+     * @param a Id of one country
+     * @param b Id of the other country
+     * @return Distance in km between their capitals, or Integer.MAX_VALUE if the capdist file has none
+     */
+    public int distance (int a, int b) {
+        short km = matrix.get(a * size + b);
+        return km == MISSING ? Integer.MAX_VALUE : km;
+    }
+
+    public int size () {
+        return size;
+    }
+
+    /**
+     * @return True if the matrix is backed by a mapped file rather than a direct buffer
+     */
+    public boolean isMapped () {
+        return mapping instanceof MappedByteBuffer;
+    }
+
+    /**
+     * @return Off-heap bytes held by the matrix
+     */
+    public long getMemoryBytes () {
+        return (long) size * size * Short.BYTES;
+    }
+
+    /**
+     *  Writes the country count and the code of every country, as length-prefixed UTF-8
+     */
+    private static void putCodes (ByteBuffer buffer, CountryGraph graph) {
+        buffer.putInt(graph.size());
+        for (int id = 0; id < graph.size(); id++) {
+            byte[] code = graph.codeOf(id).getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) code.length).put(code);
+        }
+    }
+
+    /**
+     * @return Offset of the matrix from the start of the file
+     */
+    private static int matrixOffset (CountryGraph graph) {
+        int offset = HEADER_BYTES + Integer.BYTES;
+        for (int id = 0; id < graph.size(); id++) {
+            offset += Short.BYTES + graph.codeOf(id).getBytes(StandardCharsets.UTF_8).length;
+        }
+        return offset;
+    }
+
+    private static int payloadBytes (CountryGraph graph) {
+        return matrixOffset(graph) - HEADER_BYTES + graph.size() * graph.size() * Short.BYTES;
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.Arrays;
+
+/**
+ *  Connected components of a CountryGraph, found once per graph with union-find over its edges.
+ *  Two countries are connected if and only if they share a component, so a query between
+ *  different landmasses is rejected in O(1) instead of exhausting the source's component.
+ *  Components are numbered in order of their smallest id. A compiled graph gives every
+ *  component a contiguous id range (see CountryGraph.byComponent), so searches that scan whole
+ *  id arrays can stay within [start, end) of the source's component. For other graphs, e.g.
+ *  after a closed border splits a component, the range is the smallest one covering it.
+ */
+public final class Components {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final int[] component;     //  Component of every id
+    private final int[] start;         //  Smallest id of every component
+    private final int[] end;           //  Largest id of every component + 1
+    private final int[] sizes;
+
+    private Components (int[] component, int[] start, int[] end, int[] sizes) {
+        this.component = component;
+        this.start = start;
+        this.end = end;
+        this.sizes = sizes;
+    }
+
+    /**
+     *  Finds the components of a graph in CSR form. Union by size with path halving,
+     *  so this is close to linear in the number of edges.
+     * @param offsets CSR row offsets
+     * @param targets Neighbor id of every edge
+     * @return Components of the graph
+     */
+    static Components of (int[] offsets, int[] targets) {
+        int size = offsets.length - 1;
+        int[] parent = new int[size];
+        int[] members = new int[size];
+        for (int id = 0; id < size; id++) {
+            parent[id] = id;
+            members[id] = 1;
+        }
+        for (int id = 0; id < size; id++) {
+            for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+                int a = find(parent, id);
+                int b = find(parent, targets[e]);
+                if (a != b) {
+                    if (members[a] < members[b]) {
+                        int swap = a;
+                        a = b;
+                        b = swap;
+                    }
+                    parent[b] = a;
+                    members[a] += members[b];
+                }
+            }
+        }
+
+        //  Number the roots in order of their smallest id
+        int[] component = new int[size];
+        int[] numberOf = new int[size];
+        Arrays.fill(numberOf, -1);
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            int root = find(parent, id);
+            if (numberOf[root] == -1) {
+                numberOf[root] = count++;
+            }
+            component[id] = numberOf[root];
+        }
+
+        int[] start = new int[count];
+        int[] end = new int[count];
+        int[] sizes = new int[count];
+        Arrays.fill(start, -1);
+        for (int id = 0; id < size; id++) {
+            int c = component[id];
+            if (start[c] == -1) {
+                start[c] = id;
+            }
+            end[c] = id + 1;
+            sizes[c]++;
+        }
+        return new Components(component, start, end, sizes);
+    }
+
+    private static int find (int[] parent, int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    /**
+     * @return Number of components, isolated countries included
+     */
+    public int count () {
+        return sizes.length;
+    }
+
+    /**
+     * @param id Id of a country
+     * @return Its component
+     */
+    public int componentOf (int id) {
+        return component[id];
+    }
+
+    /**
+     * @param a Id of one country
+     * @param b Id of the other country
+     * @return True if a route between them exists; false if either id is unknown (negative)
+     */
+    public boolean connected (int a, int b) {
+        return a >= 0 && b >= 0 && component[a] == component[b];
+    }
+
+    /**
+     * @return Smallest id of the component
+     */
+    public int start (int c) {
+        return start[c];
+    }
+
+    /**
+     * @return Largest id of the component + 1
+     */
+    public int end (int c) {
+        return end[c];
+    }
+
+    /**
+     * @return Number of countries in the component
+     */
+    public int size (int c) {
+        return sizes[c];
+    }
+
+    /**
+     * @return Number of countries in the largest component
+     */
+    public int largest () {
+        int largest = 0;
+        for (int size : sizes) {
+            largest = Math.max(largest, size);
+        }
+        return largest;
+    }
+
+    /**
+     * @return True if every component holds exactly the ids of its range
+     */
+    public boolean isContiguous () {
+        for (int c = 0; c < sizes.length; c++) {
+            if (end[c] - start[c] != sizes[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
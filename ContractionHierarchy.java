@@ -0,0 +1,465 @@
+import java.util.Arrays;
+
+/**
+ *  Contraction hierarchy over a CountryGraph for fast point-to-point queries.
+ *  Preprocessing contracts the countries one at a time, least important first. Contracting v
+ *  removes it from the remaining graph; for every pair of remaining neighbors u, w whose
+ *  shortest connection ran through v, a shortcut u - w with weight w(u, v) + w(v, w) is added
+ *  (remembering v as its middle). A pair needs no shortcut if a bounded local Dijkstra that
+ *  avoids v (witness search) finds a path at least as short. Importance is twice the edge
+ *  difference (shortcuts added minus edges removed) plus the number of contracted neighbors,
+ *  so sparse regions go first and contraction spreads evenly. Priorities are updated lazily:
+ *  a popped node is re-queued if it is no longer the least important.
+ *  <p>
+ *  Every edge and shortcut is kept once, at its lower-ranked end, pointing upward. A query
+ *  runs Dijkstra upward from both ends at once; the shortest path is the best node reached
+ *  from both sides, and each side stops when its smallest key cannot beat the best found.
+ *  Nodes reached more cheaply from above are stalled (not expanded). Shortcuts on the result are unpacked through their middle nodes back into original edges.
+ *  Borders work both ways, so one upward graph serves both directions.
+ */
+final class ContractionHierarchy {
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final int[] rank;           //  Contraction order of every id
+    private final int[] offsets;        //  Upward edges in CSR form
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] middle;         //  Contracted node a shortcut skips, -1 for original edges
+    private final int shortcuts;
+    private final long buildMillis;
+
+    /**
+     *  Contracts every country of a graph
+     * @param graph Graph to preprocess
+     */
+    ContractionHierarchy (CountryGraph graph) {
+        long start = System.nanoTime();
+        Builder builder = new Builder(graph);
+        builder.contractAll();
+
+        int size = graph.size();
+        rank = builder.rank;
+        offsets = new int[size + 1];
+        for (int e = 0; e < builder.upCount; e++) {
+            offsets[builder.upFrom[e] + 1]++;
+        }
+        for (int id = 0; id < size; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+        int[] next = Arrays.copyOf(offsets, size);
+        targets = new int[builder.upCount];
+        weights = new int[builder.upCount];
+        middle = new int[builder.upCount];
+        int added = 0;
+        for (int e = 0; e < builder.upCount; e++) {
+            int slot = next[builder.upFrom[e]]++;
+            targets[slot] = builder.upTo[e];
+            weights[slot] = builder.upWeight[e];
+            middle[slot] = builder.upMiddle[e];
+            if (middle[slot] != -1) {
+                added++;
+            }
+        }
+        shortcuts = added;
+        buildMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     *  Bidirectional upward search between two ids, using forward and forward.reverse()
+     * @param forward Scratch space of the query, clean on entry
+     * @return The best meeting node, or -1 if target cannot be reached
+     */
+    int search (SearchScratch forward, int source, int target) {
+        SearchScratch backward = forward.reverse();
+        int best = Integer.MAX_VALUE;
+        int meet = -1;
+        int settledCount = 0;
+        int relaxedCount = 0;
+
+        forward.reach(source, 0, -1);
+        forward.heap.pushOrDecrease(source, 0);
+        backward.reach(target, 0, -1);
+        backward.heap.pushOrDecrease(target, 0);
+        if (source == target) {
+            best = 0;
+            meet = source;
+        }
+
+        boolean fromSource = false;
+        while (true) {
+            boolean forwardOpen = !forward.heap.isEmpty() && forward.heap.keyOf(forward.heap.peek()) < best;
+            boolean backwardOpen = !backward.heap.isEmpty() && backward.heap.keyOf(backward.heap.peek()) < best;
+            if (!forwardOpen && !backwardOpen) {
+                break;
+            }
+            //  Alternate while both sides can still improve
+            fromSource = forwardOpen && (!backwardOpen || !fromSource);
+            SearchScratch side = fromSource ? forward : backward;
+            SearchScratch other = fromSource ? backward : forward;
+
+            int curr = side.heap.poll();
+            side.settled[curr] = true;
+            settledCount++;
+
+            int currDist = side.distance[curr];
+            if (stalled(side, curr, currDist)) {
+                continue;
+            }
+            for (int e = offsets[curr]; e < offsets[curr + 1]; e++) {
+                int up = targets[e];
+                int totalDist = currDist + weights[e];
+                relaxedCount++;
+
+                if (totalDist < side.distance[up]) {
+                    side.reach(up, totalDist, curr);
+                    side.heap.pushOrDecrease(up, totalDist);
+                    if (other.distance[up] != Integer.MAX_VALUE && (long) totalDist + other.distance[up] < best) {
+                        best = totalDist + other.distance[up];
+                        meet = up;
+                    }
+                }
+            }
+        }
+
+        forward.settledCount = settledCount;
+        forward.relaxedCount = relaxedCount;
+        return meet;
+    }
+
+    /**
+     *  Stall-on-demand: a node reached more cheaply through a higher-ranked neighbor (over the
+     *  same edge, taken downward) is not on a shortest up-down path, so its edges need not be relaxed
+     */
+    private boolean stalled (SearchScratch side, int node, int dist) {
+        for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+            int higher = side.distance[targets[e]];
+            if (higher != Integer.MAX_VALUE && higher + weights[e] < dist) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *  Unpacks the path found by search into original edges
+     * @param forward Scratch space search left its results in
+     * @param meet    Meeting node returned by search
+     * @return Ids from source to target
+     */
+    int[] path (SearchScratch forward, int meet) {
+        int[] up = new int[16];
+        int length = 0;
+        for (int current = meet; current != -1; current = forward.parent[current]) {
+            up = grow(up, length);
+            up[length++] = current;
+        }
+
+        int[] out = new int[Math.max(16, 2 * length)];
+        int count = 0;
+        out[count++] = up[length - 1];
+        for (int i = length - 1; i > 0; i--) {
+            out = unpack(up[i], up[i - 1], out, count);
+            count = out[out.length - 1];
+        }
+        int[] backParent = forward.reverse().parent;
+        for (int current = meet; backParent[current] != -1; current = backParent[current]) {
+            out = unpack(current, backParent[current], out, count);
+            count = out[out.length - 1];
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    /**
+     *  Appends the original path from a to b (without a) to out[0, count).
+     *  Shortcuts nest, so this walks a stack of pending edges instead of recursing.
+     * @return The buffer, possibly grown; its last slot holds the new count
+     */
+    private int[] unpack (int a, int b, int[] out, int count) {
+        int[] stack = {a, b};
+        int depth = 2;
+        while (depth > 0) {
+            int to = stack[--depth];
+            int from = stack[--depth];
+            int e = edge(from, to);
+            if (middle[e] == -1) {
+                //  Leave the last slot free for the count
+                if (count + 1 >= out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                out[count++] = to;
+                continue;
+            }
+            if (depth + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            //  Second half pushed first, so the first half is unpacked first
+            stack[depth++] = middle[e];
+            stack[depth++] = to;
+            stack[depth++] = from;
+            stack[depth++] = middle[e];
+        }
+        if (count + 1 >= out.length) {
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+        out[out.length - 1] = count;
+        return out;
+    }
+
+    /**
+     * @return Index of the upward edge between a and b, stored at the lower-ranked one
+     */
+    private int edge (int a, int b) {
+        int low = rank[a] < rank[b] ? a : b;
+        int high = low == a ? b : a;
+        for (int e = offsets[low]; e < offsets[low + 1]; e++) {
+            if (targets[e] == high) {
+                return e;
+            }
+        }
+        throw new IllegalStateException("No edge " + a + " - " + b + " in the hierarchy");
+    }
+
+    private static int[] grow (int[] array, int length) {
+        return length < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+
+    /*
+     ***************************
+     *  Util Access Functions  *
+     ***************************
+     */
+
+    /**
+     * @return Number of shortcuts added by the contraction
+     */
+    int getShortcuts () {
+        return shortcuts;
+    }
+
+    /**
+     * @return Number of upward edges, original ones included
+     */
+    int getEdges () {
+        return targets.length;
+    }
+
+    long getBuildMillis () {
+        return buildMillis;
+    }
+
+    /**
+     * @return One line summary of the preprocessing cost
+     */
+    String report () {
+        return String.format("Contracted %d countries in %d ms: %d shortcuts, %d upward edges",
+                rank.length, buildMillis, shortcuts, targets.length);
+    }
+
+    /**
+     *  Working state of the contraction: the remaining graph as growable adjacency lists
+     *  (both directions), the node order queue and the upward edges collected so far
+     */
+    private static final class Builder {
+        final int size;
+        final int[] rank;
+        int[][] neighbor;
+        int[][] weight;
+        int[][] via;
+        final int[] degree;
+        final int[] deleted;        //  Contracted neighbors of every node
+        final SearchScratch witness;
+
+        int[] upFrom = new int[64];
+        int[] upTo = new int[64];
+        int[] upWeight = new int[64];
+        int[] upMiddle = new int[64];
+        int upCount;
+
+        //  Shortcuts found by the last call of shortcuts(), as (u, w, weight) triples
+        int[] found = new int[48];
+        int foundCount;
+
+        Builder (CountryGraph graph) {
+            size = graph.size();
+            rank = new int[size];
+            neighbor = new int[size][];
+            weight = new int[size][];
+            via = new int[size][];
+            degree = new int[size];
+            deleted = new int[size];
+            witness = new SearchScratch(size);
+
+            for (int id = 0; id < size; id++) {
+                int edges = graph.lastEdge(id) - graph.firstEdge(id);
+                neighbor[id] = new int[Math.max(edges, 2)];
+                weight[id] = new int[Math.max(edges, 2)];
+                via[id] = new int[Math.max(edges, 2)];
+                for (int e = graph.firstEdge(id); e < graph.lastEdge(id); e++) {
+                    link(id, graph.target(e), graph.weight(e), -1);
+                }
+            }
+        }
+
+        void contractAll () {
+            IndexedMinHeap queue = new IndexedMinHeap(size);
+            for (int id = 0; id < size; id++) {
+                queue.pushOrDecrease(id, priority(id));
+            }
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                //  Lazy update: contract only if still no worse than the next candidate
+                int current = priority(v);
+                if (!queue.isEmpty() && current > queue.keyOf(queue.peek())) {
+                    queue.pushOrDecrease(v, current);
+                    continue;
+                }
+                contract(v);
+                rank[v] = order++;
+            }
+        }
+
+        private int priority (int v) {
+            shortcuts(v);
+            return 2 * (foundCount / 3 - degree[v]) + deleted[v];
+        }
+
+        /**
+         *  Removes v from the remaining graph: its edges become upward edges and the
+         *  shortcuts it needs are added between its neighbors. Uses the shortcuts found by
+         *  the priority just computed for v; the remaining graph has not changed since.
+         */
+        private void contract (int v) {
+            for (int i = 0; i < degree[v]; i++) {
+                addUpward(v, neighbor[v][i], weight[v][i], via[v][i]);
+            }
+            for (int k = 0; k < foundCount; k += 3) {
+                link(found[k], found[k + 1], found[k + 2], v);
+                link(found[k + 1], found[k], found[k + 2], v);
+            }
+            for (int i = 0; i < degree[v]; i++) {
+                int u = neighbor[v][i];
+                unlink(u, v);
+                deleted[u]++;
+            }
+        }
+
+        /**
+         *  Finds the shortcuts contracting v would need, into found[0, foundCount)
+         */
+        private void shortcuts (int v) {
+            foundCount = 0;
+            int[] near = neighbor[v];
+            int[] dist = weight[v];
+            int deg = degree[v];
+            for (int i = 0; i < deg - 1; i++) {
+                int u = near[i];
+                int limit = 0;
+                int wanted = 0;
+                for (int j = i + 1; j < deg; j++) {
+                    limit = Math.max(limit, dist[i] + dist[j]);
+                    if (!witness.wanted[near[j]]) {
+                        witness.wanted[near[j]] = true;
+                        wanted++;
+                    }
+                }
+                witnessSearch(u, v, limit, wanted);
+                for (int j = i + 1; j < deg; j++) {
+                    int w = near[j];
+                    int through = dist[i] + dist[j];
+                    witness.wanted[w] = false;
+                    if (witness.distance[w] > through) {
+                        if (foundCount + 3 > found.length) {
+                            found = Arrays.copyOf(found, found.length * 2);
+                        }
+                        found[foundCount++] = u;
+                        found[foundCount++] = w;
+                        found[foundCount++] = through;
+                    }
+                }
+                witness.reset();
+            }
+        }
+
+        /**
+         *  Dijkstra from u over the remaining graph without v. Stops once every wanted id is settled,
+         *  past the distance limit, or at the settle limit. A pair the search misses only costs an
+         *  unneeded shortcut, never a wrong distance.
+         */
+        private void witnessSearch (int u, int v, int limit, int wanted) {
+            witness.reach(u, 0, -1);
+            witness.heap.pushOrDecrease(u, 0);
+            int settled = 0;
+            while (!witness.heap.isEmpty() && settled++ < WITNESS_SETTLE_LIMIT) {
+                int curr = witness.heap.poll();
+                int currDist = witness.distance[curr];
+                if (currDist > limit || (witness.wanted[curr] && --wanted == 0)) {
+                    break;
+                }
+                for (int i = 0; i < degree[curr]; i++) {
+                    int next = neighbor[curr][i];
+                    int totalDist = currDist + weight[curr][i];
+                    if (next != v && totalDist < witness.distance[next]) {
+                        witness.reach(next, totalDist, curr);
+                        witness.heap.pushOrDecrease(next, totalDist);
+                    }
+                }
+            }
+        }
+
+        /**
+         *  Adds the edge a -> b, or lowers it if it exists with a larger weight
+         */
+        private void link (int a, int b, int w, int middle) {
+            for (int i = 0; i < degree[a]; i++) {
+                if (neighbor[a][i] == b) {
+                    if (w < weight[a][i]) {
+                        weight[a][i] = w;
+                        via[a][i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (degree[a] == neighbor[a].length) {
+                int grown = degree[a] * 2;
+                neighbor[a] = Arrays.copyOf(neighbor[a], grown);
+                weight[a] = Arrays.copyOf(weight[a], grown);
+                via[a] = Arrays.copyOf(via[a], grown);
+            }
+            neighbor[a][degree[a]] = b;
+            weight[a][degree[a]] = w;
+            via[a][degree[a]++] = middle;
+        }
+
+        private void unlink (int a, int b) {
+            for (int i = 0; i < degree[a]; i++) {
+                if (neighbor[a][i] == b) {
+                    int last = --degree[a];
+                    neighbor[a][i] = neighbor[a][last];
+                    weight[a][i] = weight[a][last];
+                    via[a][i] = via[a][last];
+                    return;
+                }
+            }
+        }
+
+        private void addUpward (int from, int to, int w, int middle) {
+            if (upCount == upFrom.length) {
+                int grown = upCount * 2;
+                upFrom = Arrays.copyOf(upFrom, grown);
+                upTo = Arrays.copyOf(upTo, grown);
+                upWeight = Arrays.copyOf(upWeight, grown);
+                upMiddle = Arrays.copyOf(upMiddle, grown);
+            }
+            upFrom[upCount] = from;
+            upTo[upCount] = to;
+            upWeight[upCount] = w;
+            upMiddle[upCount++] = middle;
+        }
+    }
+}
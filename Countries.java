@@ -1,4 +1,5 @@
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 
@@ -10,6 +11,9 @@ public class Countries {
     private static volatile Countries instance = null;
     public final HashMap<String, Country> countries = new LinkedHashMap<>();
     public final HashMap<String, String> countryCodes = new HashMap<>();
+    private final ArrayList<Country> byIndex = new ArrayList<>();
+    private NameIndex index = null;
+    private String[] indexCodes = null;
 
     /**
      *  Parses countryData (csv formatted), creates a new
@@ -29,10 +33,12 @@ public class Countries {
         Country info;
 
         int ID = Integer.parseInt(data[0]);
-        String code = data[1];
-        String name = data[2].split(" \\(")[0].split("/")[0];
+        //  Interned: the same names and codes appear in every file and on every reload
+        String code = data[1].intern();
+        String name = data[2].split(" \\(")[0].split("/")[0].intern();
 
         String key = name.toLowerCase();
+        index = null;
         //  Key for countryCodes is name, value is the key for countries
         if(!countryCodes.containsKey(key)){
             countryCodes.put(key, code);
@@ -43,11 +49,13 @@ public class Countries {
             info.setID(ID);
             info.setCode(code);
             info.setName(name);
+            info.setIndex(byIndex.size());
 
             countries.put(code, info);
+            byIndex.add(info);
         }
         else{
-            info = countries.get(key);
+            info = countries.get(countryCodes.get(key));
 
             info.setID(ID);
             info.setCode(code);
@@ -55,6 +63,40 @@ public class Countries {
         }
     }
 
+    /**
+     *  Forgets every country so the files can be read again.
+     *  Queries never read this map, only the compiled CountryGraph.
+     */
+    public void clear() {
+        countries.clear();
+        countryCodes.clear();
+        byIndex.clear();
+        index = null;
+        indexCodes = null;
+    }
+
+    /**
+     *  Replaces the neighbors of every country. The name index used to resolve border
+     *  names is dropped as well, it is rebuilt if resolveCountry is called again.
+     * @param borders All borders, by Country.getIndex()
+     */
+    void setNeighbors(BorderBuilder borders) {
+        int[][] neighbors = borders.neighbors();
+        for(int i = 0; i < neighbors.length; i++){
+            byIndex.get(i).setNeighbors(neighbors[i]);
+        }
+        index = null;
+        indexCodes = null;
+    }
+
+    /**
+     * @param index Dense index of a country (see Country.getIndex)
+     * @return The country at that index
+     */
+    public Country countryAt(int index) {
+        return byIndex.get(index);
+    }
+
     /**
      *  Uses the country code to find country's data in the map
      * @param countryName Full name of country to find
@@ -68,6 +110,70 @@ public class Countries {
         return null;
     }
 
+    /**
+     *  Resolves any spelling of a country (name, alias or code, see NameIndex).
+     *  The index is built on first use and rebuilt after countries are added.
+     * @param anyName Name as found in a data file or typed by a user
+     * @return Data of the matching country or null
+     */
+    public Country resolveCountry(String anyName) {
+        if(index == null){
+            String[] names = new String[countries.size()];
+            String[] codes = new String[countries.size()];
+            int i = 0;
+            for(Country country : countries.values()){
+                names[i] = country.getName();
+                codes[i++] = country.getCode();
+            }
+            index = new NameIndex(names, codes);
+            indexCodes = codes;
+        }
+        int id = index.idOf(anyName);
+        if(id < 0){
+            return null;
+        }
+        return countries.get(indexCodes[id]);
+    }
+
+    /**
+     *  Builds a map holding the countries and borders of a compiled graph, e.g. one read
+     *  from a GraphSnapshot, so the map answers the same as after parsing the files.
+     *  Country indexes are the graph ids.
+     * @param graph Graph to copy
+     * @return A new map, not shared until passed to setInstance
+     */
+    public static Countries fromGraph(CountryGraph graph) {
+        Countries map = new Countries();
+        for(int id = 0; id < graph.size(); id++){
+            Country info = new Country();
+            info.setCode(graph.codeOf(id));
+            info.setName(graph.nameOf(id));
+            info.setIndex(id);
+
+            int[] triples = new int[3 * (graph.lastEdge(id) - graph.firstEdge(id))];
+            for(int e = graph.firstEdge(id), k = 0; e < graph.lastEdge(id); e++, k += 3){
+                triples[k] = graph.target(e);
+                triples[k + 1] = graph.weight(e);
+                triples[k + 2] = graph.length(e);
+            }
+            info.setNeighbors(triples);
+
+            map.countryCodes.putIfAbsent(info.getName().toLowerCase(), info.getCode());
+            map.countries.put(info.getCode(), info);
+            map.byIndex.add(info);
+        }
+        return map;
+    }
+
+    /**
+     *  Replaces the shared instance in one step: callers of getInstance see either
+     *  the old map or the complete new one, never a partly filled map.
+     * @param map Fully built map
+     */
+    public static void setInstance(Countries map){
+        instance = map;
+    }
+
     /**
      *  Returns the instance of the class if there is one, else creates a new one
      *  and shares that. Used a thread-safe implementation to be cautious.
@@ -4,10 +4,12 @@ import java.util.List;
 
 /**
  * Individual Country object. Keeps track of all neighboring
- * countries and the distance between the capitals.
+ * countries, the distance between the capitals and the length of the border.
+ * Neighbors are stored as primitive (index, distance, length) triples in one exactly
+ * sized array; Neighbor objects are only created when asked for.
  */
 public class Country {
-    private final List<Neighbor> neighbors;
+    private static final int[] NO_NEIGHBORS = new int[0];
     /*
      ************************
      *  Private Properties  *
@@ -16,6 +18,8 @@ public class Country {
     private String name;
     private String code;
     private int ID;
+    private int index;
+    private int[] neighbors = NO_NEIGHBORS;     //  {index, distance, length, index, distance, length, ...}
 
     /*
      ***********************
@@ -23,7 +27,6 @@ public class Country {
      ***********************
      */
     public Country () {
-        neighbors = new ArrayList<>();
     }
 
     public String getCode () {
@@ -34,8 +37,15 @@ public class Country {
         this.code = code;
     }
 
+    /**
+     * @return A view of every neighbor, in the order the borders were read
+     */
     public List<Neighbor> getNeighbors () {
-        return neighbors;
+        List<Neighbor> list = new ArrayList<>(neighbors.length / 3);
+        for (int k = 0; k < neighbors.length; k += 3) {
+            list.add(new Neighbor(neighbors[k], neighbors[k + 1], neighbors[k + 2]));
+        }
+        return list;
     }
 
     public String getName () {
@@ -51,27 +61,29 @@ public class Country {
     }
 
     /**
-     *  Adds a new neighbor to the country. Will not add any duplicate entries
-     * @param countryName Name of neighboring country
-     * @param distBetweenCapitals Distance in km between capitals
+     * @return Dense position of the country in Countries, also its id in the compiled CountryGraph
      */
-    public void addNeighbor (String countryName, int distBetweenCapitals) {
-        //  If neighbors not empty, check for duplicate values
-        if (!neighbors.isEmpty()) {
-            for (Neighbor entry : neighbors) {
-                assert entry.name != null;
-                if (entry.name.equalsIgnoreCase(countryName)) {
-                    return;
-                }
-            }
-        }
+    public int getIndex () {
+        return index;
+    }
 
-        Neighbor newAddition = new Neighbor(countryName, distBetweenCapitals);
+    void setIndex (int index) {
+        this.index = index;
+    }
 
-        //  Check for proper instantiation before adding to list
-        if (newAddition.distToCap != -1) {
-            neighbors.add(newAddition);
-        }
+    /**
+     * @return The packed {index, distance, length, ...} triples, not a copy
+     */
+    int[] neighborTriples () {
+        return neighbors;
+    }
+
+    /**
+     *  Replaces all neighbors at once (see BorderBuilder, which removes duplicates)
+     * @param triples Packed {index, distance, length, ...} triples, kept as is
+     */
+    void setNeighbors (int[] triples) {
+        neighbors = triples.length == 0 ? NO_NEIGHBORS : triples;
     }
 
     /**
@@ -80,20 +92,21 @@ public class Country {
      * @return Distance in km to travel to countryName
      */
     public int getNeighborDist (String countryName) {
-        int dist = Integer.MAX_VALUE;
-        for (Neighbor elem : neighbors) {
-            assert elem.name != null;
-            if (elem.name.equalsIgnoreCase(countryName)) {
-                dist = elem.distToCap;
+        Country other = Countries.getInstance().findCountry(countryName);
+        if (other != null) {
+            for (int k = 0; k < neighbors.length; k += 3) {
+                if (neighbors[k] == other.index) {
+                    return neighbors[k + 1];
+                }
             }
         }
-        return dist;
+        return Integer.MAX_VALUE;
     }
 
 
     /**
      *  Object to store information about distance to a neighboring country.
-     *  Includes a pointer to that country's object.
+     *  A lightweight view over one (index, distance, length) triple of the owning Country.
      */
     protected static class Neighbor {
         /*
@@ -101,28 +114,21 @@ public class Country {
          *  Private Properties  *
          ************************
          */
-        private final String name;
+        private final int index;
         private final int distToCap;
+        private final int borderLength;
 
         /**
-         * Creates a new Neighbor object if the country has already been logged
+         * Creates a view of one neighbor
          *
-         * @param countryName Name of Neighbor to create
-         * @param distToCaP   Distance in KM from Capital to Capital
+         * @param index        Index of the neighboring country in Countries
+         * @param distToCaP    Distance in KM from Capital to Capital
+         * @param borderLength Length in KM of the shared border, 0 if unknown
          */
-        public Neighbor (String countryName, int distToCaP) {
-            //  Neighbor must have a Country object to establish the link.
-            if (Countries.getInstance().findCountry(countryName) != null) {
-                name = countryName;
-                distToCap = distToCaP;
-            }
-            else {
-                //  Set all to error values
-                name = null;
-                distToCap = -1;
-
-                System.out.println("Country not found in map. Please add before assigning neighbors.");
-            }
+        Neighbor (int index, int distToCaP, int borderLength) {
+            this.index = index;
+            this.distToCap = distToCaP;
+            this.borderLength = borderLength;
         }
 
         /*
@@ -132,13 +138,19 @@ public class Country {
          */
 
         public String getName () {
-            return name;
+            return Countries.getInstance().countryAt(index).getName();
+        }
+
+        public int getIndex () {
+            return index;
         }
 
         public int getDistToCap () {
             return distToCap;
         }
+
+        public int getBorderLength () {
+            return borderLength;
+        }
     }
 }
-
-
@@ -0,0 +1,406 @@
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.List;
+
+/**
+ *  Immutable, compiled form of the border graph. Every country is given a dense
+ *  int id and its edges are stored in compressed-sparse-row (CSR) form:
+ *  the edges of country 'i' are found at indices [offsets[i], offsets[i + 1])
+ *  of 'targets', 'weights' (capital distance, the routing cost) and 'lengths'
+ *  (length of the shared border, 0 if unknown). Names are only used to resolve ids.
+ *  Capital distances between any two countries, neighbors or not, come from an optional
+ *  off-heap matrix indexed by the same ids (see CapitalDistances). The connected components are
+ *  found when the graph is created (see Components); compiled graphs number the countries so
+ *  that every component holds a contiguous range of ids.
+ */
+public final class CountryGraph {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final String[] names;
+    private final String[] codes;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] lengths;
+    private final NameIndex index;
+    private final CapitalDistances capitals;        //  Null until withCapitals
+    private final Components components;
+
+    /**
+     *  Wraps already compiled arrays. Callers must not modify the arrays afterwards.
+     * @param names   Display name of each country, indexed by id
+     * @param codes   3-Letter code of each country, indexed by id
+     * @param offsets CSR row offsets (length names.length + 1)
+     * @param targets Neighbor id of every edge
+     * @param weights Distance in km between capitals of every edge
+     * @param lengths Length in km of the border of every edge, 0 if unknown
+     */
+    CountryGraph (String[] names, String[] codes, int[] offsets, int[] targets, int[] weights, int[] lengths) {
+        this(names, codes, offsets, targets, weights, lengths, new NameIndex(names, codes), null);
+    }
+
+    /**
+     *  Wraps already compiled arrays of a graph whose border lengths are unknown
+     */
+    CountryGraph (String[] names, String[] codes, int[] offsets, int[] targets, int[] weights) {
+        this(names, codes, offsets, targets, weights, new int[targets.length]);
+    }
+
+    private CountryGraph (String[] names, String[] codes, int[] offsets, int[] targets, int[] weights,
+                          int[] lengths, NameIndex index, CapitalDistances capitals) {
+        this.names = names;
+        this.codes = codes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.lengths = lengths;
+        this.index = index;
+        this.capitals = capitals;
+        this.components = Components.of(offsets, targets);
+    }
+
+    /**
+     *  Compiles the current state of 'map' into a CSR graph, numbered by component
+     *  (see byComponent). Should be called once all borders have been set.
+     * @param map Fully populated collection of countries
+     * @return Compiled graph holding every country in 'map'
+     */
+    public static CountryGraph compile (Countries map) {
+        int size = map.countries.size();
+        String[] names = new String[size];
+        String[] codes = new String[size];
+
+        //  Laid out by Countries index first, so neighbor triples are copied without any lookup
+        int edges = 0;
+        for (int id = 0; id < size; id++) {
+            Country country = map.countryAt(id);
+            names[id] = country.getName();
+            codes[id] = country.getCode();
+            edges += country.neighborTriples().length / 3;
+        }
+
+        int[] offsets = new int[size + 1];
+        int[] targets = new int[edges];
+        int[] weights = new int[edges];
+        int[] lengths = new int[edges];
+        int e = 0;
+        for (int id = 0; id < size; id++) {
+            offsets[id] = e;
+            int[] triples = map.countryAt(id).neighborTriples();
+            for (int k = 0; k < triples.length; k += 3) {
+                targets[e] = triples[k];
+                weights[e] = triples[k + 1];
+                lengths[e++] = triples[k + 2];
+            }
+        }
+        offsets[size] = e;
+
+        return new CountryGraph(names, codes, offsets, targets, weights, lengths).byComponent();
+    }
+
+    /**
+     *  Renumbers the countries so every connected component holds a contiguous range of ids,
+     *  keeping their order within a component. Must be called before withCapitals.
+     * @return This graph if its components are already contiguous, otherwise a renumbered copy
+     */
+    CountryGraph byComponent () {
+        if (components.isContiguous()) {
+            return this;
+        }
+        int size = names.length;
+        int[] next = new int[components.count()];
+        for (int c = 1; c < next.length; c++) {
+            next[c] = next[c - 1] + components.size(c - 1);
+        }
+        int[] newId = new int[size];
+        int[] oldId = new int[size];
+        for (int id = 0; id < size; id++) {
+            newId[id] = next[components.componentOf(id)]++;
+            oldId[newId[id]] = id;
+        }
+
+        String[] newNames = new String[size];
+        String[] newCodes = new String[size];
+        int[] newOffsets = new int[size + 1];
+        int[] newTargets = new int[targets.length];
+        int[] newWeights = new int[targets.length];
+        int[] newLengths = new int[targets.length];
+        int out = 0;
+        for (int id = 0; id < size; id++) {
+            int old = oldId[id];
+            newNames[id] = names[old];
+            newCodes[id] = codes[old];
+            newOffsets[id] = out;
+            for (int e = offsets[old]; e < offsets[old + 1]; e++) {
+                newTargets[out] = newId[targets[e]];
+                newWeights[out] = weights[e];
+                newLengths[out++] = lengths[e];
+            }
+        }
+        newOffsets[size] = out;
+        return new CountryGraph(newNames, newCodes, newOffsets, newTargets, newWeights, newLengths);
+    }
+
+    /**
+     *  Rebuilds only the edges: same countries, ids and name index, with borders and weights
+     *  taken from 'pairs' and 'capDist'. Follows the rules of IRoadTrip.setBorders: self-loops
+     *  and pairs without a capital distance are skipped, every border is added both ways and
+     *  the first distance seen for a pair wins.
+     * @param borders Resolved borders, flattened as {origin, neighbor, length, ...} (see resolveBorders)
+     * @param capDist Table of distances between nation capitals
+     * @return New graph, this one is left unchanged
+     */
+    CountryGraph withBorders (int[] borders, CapDistTable capDist) {
+        BorderBuilder builder = new BorderBuilder(names.length);
+        for (int p = 0; p + 2 < borders.length; p += 3) {
+            int from = borders[p];
+            int to = borders[p + 1];
+            if (from == to) {
+                continue;
+            }
+            int distance = capDist.get(codes[from], codes[to]);
+            if (distance != -1) {
+                builder.add(from, to, distance, borders[p + 2]);
+            }
+        }
+
+        int[][] csr = builder.csr();
+        return new CountryGraph(names, codes, csr[0], csr[1], csr[2], csr[3], index, capitals);
+    }
+
+    /**
+     *  Resolves border pairs read by IRoadTrip.readBorders to ids of this graph,
+     *  through the name index as IRoadTrip.setBorders resolves them
+     * @param pairs Output of readBorders
+     * @return Flattened {origin, neighbor, length, ...} triples; unknown names are dropped
+     */
+    int[] resolveBorders (List<Dictionary<String, List<String>>> pairs) {
+        int[] out = new int[96];
+        int size = 0;
+        for (Dictionary<String, List<String>> pair : pairs) {
+            int origin = idOf(pair.get("origin").get(0));
+            if (origin < 0) {
+                continue;
+            }
+            List<String> borders = pair.get("borders");
+            List<String> lengths = pair.get("lengths");
+            for (int i = 0; i < borders.size(); i++) {
+                int neighbor = idOf(borders.get(i));
+                if (neighbor >= 0) {
+                    if (size + 3 > out.length) {
+                        out = Arrays.copyOf(out, out.length * 2);
+                    }
+                    out[size++] = origin;
+                    out[size++] = neighbor;
+                    out[size++] = lengths == null ? 0 : Integer.parseInt(lengths.get(i));
+                }
+            }
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    /**
+     *  Changes one border (both directions). Countries, ids and the name index are shared
+     *  with this graph, which is left unchanged.
+     * @param a      Id of one country
+     * @param b      Id of the other country
+     * @param weight New distance in km, or Integer.MAX_VALUE to remove the border.
+     *               A border that does not exist yet is added.
+     * @param length Length in km of the border, 0 if unknown
+     * @return New graph with the changed border
+     */
+    CountryGraph withEdge (int a, int b, int weight, int length) {
+        boolean remove = weight == Integer.MAX_VALUE;
+        boolean exists = edgeWeight(a, b) != Integer.MAX_VALUE;
+        int edges = targets.length + (remove ? (exists ? -2 : 0) : (exists ? 0 : 2));
+
+        int[] newOffsets = new int[names.length + 1];
+        int[] newTargets = new int[edges];
+        int[] newWeights = new int[edges];
+        int[] newLengths = new int[edges];
+        int out = 0;
+        for (int id = 0; id < names.length; id++) {
+            newOffsets[id] = out;
+            int other = id == a ? b : id == b ? a : -1;
+            for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+                if (targets[e] != other) {
+                    newTargets[out] = targets[e];
+                    newLengths[out] = lengths[e];
+                    newWeights[out++] = weights[e];
+                }
+                else if (!remove) {
+                    newTargets[out] = other;
+                    newLengths[out] = length;
+                    newWeights[out++] = weight;
+                }
+            }
+            if (other != -1 && !remove && !exists) {
+                newTargets[out] = other;
+                newLengths[out] = length;
+                newWeights[out++] = weight;
+            }
+        }
+        newOffsets[names.length] = out;
+        return new CountryGraph(names, codes, newOffsets, newTargets, newWeights, newLengths, index, capitals);
+    }
+
+    /**
+     *  Attaches the capital distance matrix. Everything else is shared with this graph.
+     * @param capitals Matrix built for the ids of this graph
+     * @return New graph answering capitalDistance for every pair
+     */
+    CountryGraph withCapitals (CapitalDistances capitals) {
+        return new CountryGraph(names, codes, offsets, targets, weights, lengths, index, capitals);
+    }
+
+    /*
+     ***************************
+     *  Util Access Functions  *
+     ***************************
+     */
+
+    public int size () {
+        return names.length;
+    }
+
+    public int edgeCount () {
+        return targets.length;
+    }
+
+    public String nameOf (int id) {
+        return names[id];
+    }
+
+    public String codeOf (int id) {
+        return codes[id];
+    }
+
+    public int firstEdge (int id) {
+        return offsets[id];
+    }
+
+    public int lastEdge (int id) {
+        return offsets[id + 1];
+    }
+
+    public int target (int edge) {
+        return targets[edge];
+    }
+
+    public int weight (int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * @return Length in km of the border crossed by 'edge', 0 if unknown
+     */
+    public int length (int edge) {
+        return lengths[edge];
+    }
+
+    /**
+     *  Resolves a country name, alias or code (case-insensitive) to its id
+     * @param countryName Any known spelling of the country, see NameIndex
+     * @return Id of the country or -1 if unknown
+     */
+    public int idOf (String countryName) {
+        return index.idOf(countryName);
+    }
+
+    /**
+     *  Suggests countries for partial or misspelled input
+     * @param query Text typed so far
+     * @param limit Maximum number of suggestions
+     * @return Display names, best match first
+     */
+    public List<String> suggest (String query, int limit) {
+        return index.suggest(query, limit);
+    }
+
+    /**
+     *  Searches the edges of 'from' for a direct link to 'to'
+     * @param from Id of the originating country
+     * @param to   Id of the neighboring country
+     * @return Distance in km between the capitals or Integer.MAX_VALUE if not neighbors
+     */
+    public int edgeWeight (int from, int to) {
+        if (from < 0 || to < 0) {
+            return Integer.MAX_VALUE;
+        }
+        for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+            if (targets[e] == to) {
+                return weights[e];
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     *  Finds the length of the border between two neighbors
+     * @param from Id of one country
+     * @param to   Id of the other country
+     * @return Length in km, 0 if unknown, or Integer.MAX_VALUE if they are not neighbors
+     */
+    public int borderLength (int from, int to) {
+        if (from < 0 || to < 0) {
+            return Integer.MAX_VALUE;
+        }
+        for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+            if (targets[e] == to) {
+                return lengths[e];
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     *  Distance between the capitals of any two countries, in O(1) from the capital matrix.
+     *  Without a matrix only neighbors are known.
+     * @param a Id of one country
+     * @param b Id of the other country
+     * @return Distance in km, or Integer.MAX_VALUE if either id is unknown or the distance is not known
+     */
+    public int capitalDistance (int a, int b) {
+        if (a < 0 || b < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return capitals != null ? capitals.distance(a, b) : a == b ? 0 : edgeWeight(a, b);
+    }
+
+    /**
+     *  Checks in O(1) if a route between two countries exists
+     * @param a Id of one country
+     * @param b Id of the other country
+     * @return True if both ids are known and in the same component
+     */
+    public boolean connected (int a, int b) {
+        return components.connected(a, b);
+    }
+
+    public Components getComponents () {
+        return components;
+    }
+
+    /**
+     * @return The capital distance matrix, or null if none is attached
+     */
+    public CapitalDistances getCapitals () {
+        return capitals;
+    }
+
+    /**
+     *  Converts a path of ids back into country names
+     * @param path Ids in travel order
+     * @return Names in travel order, unmodifiable
+     */
+    public List<String> namesOf (int[] path) {
+        String[] out = new String[path.length];
+        for (int i = 0; i < path.length; i++) {
+            out[i] = names[path[i]];
+        }
+        return List.of(out);
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ *  Dense table of route distances from a list of origins to a list of destinations,
+ *  stored row by row in one int array. Unknown or unreachable pairs hold Integer.MAX_VALUE.
+ */
+public final class DistanceMatrix {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final int rows;
+    private final int cols;
+    private final int[] distances;
+
+    /**
+     *  Creates a matrix with every pair unreachable
+     * @param rows Number of origins
+     * @param cols Number of destinations
+     */
+    DistanceMatrix (int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.distances = new int[rows * cols];
+        java.util.Arrays.fill(distances, Integer.MAX_VALUE);
+    }
+
+    public int getRows () {
+        return rows;
+    }
+
+    public int getCols () {
+        return cols;
+    }
+
+    /**
+     * @param row Index of the origin
+     * @param col Index of the destination
+     * @return Distance in km, or Integer.MAX_VALUE if unknown or unreachable
+     */
+    public int get (int row, int col) {
+        return distances[row * cols + col];
+    }
+
+    /**
+     *  Writes one full row
+     * @param row    Index of the origin
+     * @param values Distance to every destination
+     */
+    void setRow (int row, int[] values) {
+        System.arraycopy(values, 0, distances, row * cols, cols);
+    }
+
+    /**
+     * @return The underlying row-major array. Callers must not modify it
+     */
+    public int[] toArray () {
+        return distances;
+    }
+}
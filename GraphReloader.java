@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ *  Watches the three source files and rebuilds the routing snapshot when one changes.
+ *  The new RouteService is published with one AtomicReference compare-and-set: queries that
+ *  already hold the old service finish on it, new queries see the new one, nobody waits. Border
+ *  changes made at runtime, before or during a reload, are replayed onto the new graph (see publish).
+ *  <p>
+ *  Only the state that depends on the changed files is rebuilt:
+ *  1)  capdist.csv: the distance table is reloaded, only the edges and the capital matrix are rebuilt
+ *      (CountryGraph.withBorders). Countries, ids and the name index are kept.
+ *  2)  borders.txt: the border pairs are re-read and the edges rebuilt the same way,
+ *      reusing the distance table of the last load.
+ *  3)  state_name.tsv: the set of countries changes, so everything is loaded again.
+ *  Bursts of events (editors often write a file in several steps) are collected for
+ *  DEBOUNCE_MILLIS and handled as one reload. Reloads run one at a time on the watcher thread.
+ */
+public final class GraphReloader implements AutoCloseable {
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final IRoadTrip trip;
+    private final AtomicReference<RouteService> current;
+    private final Function<CountryGraph, RouteService> factory;
+    private final Path stateNames;
+    private final Path borders;
+    private final Path capDist;
+    private final Path snapshot;
+    private final WatchService watcher;
+    private final Thread thread;
+
+    //  Inputs kept from the last reload so a partial reload can reuse them (watcher thread only)
+    private int[] borderPairs;
+    private CapDistTable capDistTable;
+    private volatile int reloads;
+
+    /**
+     *  Registers the directories of the source files; watching starts with start()
+     * @param trip       Owner of the loading methods
+     * @param current    Reference every query reads its RouteService from
+     * @param factory    Creates the RouteService for a new graph
+     * @param stateNames Path of the stateNames file
+     * @param borders    Path of the borders file
+     * @param capDist    Path of the capDist file
+     * @param snapshot   Graph snapshot to rewrite after a reload, or null
+     */
+    public GraphReloader (IRoadTrip trip, AtomicReference<RouteService> current,
+                          Function<CountryGraph, RouteService> factory,
+                          String stateNames, String borders, String capDist, Path snapshot) throws IOException {
+        this.trip = trip;
+        this.current = current;
+        this.factory = factory;
+        this.stateNames = Path.of(stateNames).toAbsolutePath();
+        this.borders = Path.of(borders).toAbsolutePath();
+        this.capDist = Path.of(capDist).toAbsolutePath();
+        this.snapshot = snapshot;
+
+        watcher = FileSystems.getDefault().newWatchService();
+        Set<Path> dirs = new HashSet<>(List.of(this.stateNames.getParent(), this.borders.getParent(),
+                this.capDist.getParent()));
+        for (Path dir : dirs) {
+            //  CREATE as well: editors and deploy scripts often replace a file by renaming a new one
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        }
+        thread = new Thread(this::watch, "graph-reloader");
+        thread.setDaemon(true);
+    }
+
+    public void start () {
+        thread.start();
+    }
+
+    /**
+     * @return Number of successful reloads so far
+     */
+    public int getReloads () {
+        return reloads;
+    }
+
+    @Override
+    public void close () throws IOException {
+        watcher.close();
+    }
+
+    private void watch () {
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                collect(watcher.take(), changed);
+                //  Debounce: keep collecting until the files have been quiet for a moment
+                for (WatchKey key; (key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null; ) {
+                    collect(key, changed);
+                }
+                if (!changed.isEmpty()) {
+                    reload(changed);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //  Closed, stop watching
+        }
+    }
+
+    private void collect (WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path name) {
+                Path file = dir.resolve(name);
+                if (file.equals(stateNames) || file.equals(borders) || file.equals(capDist)) {
+                    changed.add(file);
+                }
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     *  Rebuilds what depends on the changed files and swaps the new service in.
+     *  On any error the old service stays in place.
+     * @param changed Source files that changed
+     */
+    void reload (Set<Path> changed) {
+        long start = System.nanoTime();
+        RouteService base = current.get();
+        String kind;
+        try {
+            CountryGraph graph;
+            if (changed.contains(stateNames)) {
+                kind = "full";
+                graph = reloadAll();
+            }
+            else {
+                kind = changed.contains(borders) && changed.contains(capDist) ? "borders+capDist"
+                        : changed.contains(borders) ? "borders" : "capDist";
+                graph = reloadEdges(base.getGraph(), changed.contains(borders), changed.contains(capDist));
+            }
+
+            publish(factory.apply(graph));
+            trip.getTemporalRoutes().invalidate();
+            reloads++;
+            System.out.println("Reloaded " + kind + " in " + (System.nanoTime() - start) / 1_000_000 + " ms: "
+                    + graph.size() + " countries, " + graph.edgeCount() + " edges");
+
+            if (snapshot != null) {
+                GraphSnapshot.write(graph, snapshot);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Reload failed, keeping the current graph: " + e);
+        }
+    }
+
+    /**
+     *  Swaps in the service of the reloaded graph. The border changes (IRoadTrip.closeBorder, ...)
+     *  of the current service, including any that landed while the graph was rebuilt, are replayed
+     *  onto it so a reload does not undo them; the swap is retried until no other change slips in between.
+     * @param reloaded Service of the reloaded graph
+     */
+    private void publish (RouteService reloaded) {
+        while (true) {
+            RouteService now = current.get();
+            if (current.compareAndSet(now, now.replayOnto(reloaded))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     *  Reads all three files into a new Countries map, as at startup. The shared map is only
+     *  replaced once loading succeeded, in one step, so readers never see it half filled.
+     */
+    private CountryGraph reloadAll () throws IOException {
+        borderPairs = null;
+        capDistTable = null;
+        Countries countries = new Countries();
+        LoadPipeline pipeline = new LoadPipeline(Math.min(Runtime.getRuntime().availableProcessors(), 4), countries);
+        CountryGraph graph = pipeline.run(stateNames.toString(), borders.toString(), capDist.toString());
+        Countries.setInstance(countries);
+        capDistTable = pipeline.getCapDistTable();
+        trip.setStateTimeline(pipeline.getStateTimeline());
+        return graph.withCapitals(IRoadTrip.loadCapitals(graph, capDistTable));
+    }
+
+    /**
+     *  Keeps the countries of the current graph and rebuilds only its edges
+     * @param graph          Graph of the service the reload started from
+     * @param bordersChanged True to re-read the borders file
+     * @param capDistChanged True to re-read the capDist file
+     */
+    private CountryGraph reloadEdges (CountryGraph graph, boolean bordersChanged, boolean capDistChanged) {
+        if (bordersChanged || borderPairs == null) {
+            borderPairs = graph.resolveBorders(IRoadTrip.loadBorders(borders.toString()));
+        }
+        if (capDistChanged || capDistTable == null) {
+            capDistTable = IRoadTrip.loadCapDistance(capDist.toString());
+        }
+        CountryGraph next = graph.withBorders(borderPairs, capDistTable);
+        //  Same ids, so the capital matrix only changes with the capDist file
+        return capDistChanged ? next.withCapitals(IRoadTrip.loadCapitals(next, capDistTable)) : next;
+    }
+}
@@ -0,0 +1,167 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ *  Versioned, checksummed binary image of a compiled CountryGraph.
+ *  Lets startup skip the text parsing entirely by memory-mapping the file.
+ *  Layout (big-endian):
+ *  1)  Header: magic, format version, payload length, CRC32 of payload
+ *  2)  Payload: country count, edge count, (name, code) per country,
+ *      then the CSR offsets, targets, weights and border lengths arrays
+ */
+public final class GraphSnapshot {
+    private static final int MAGIC = 0x49525453;    //  "IRTS"
+    private static final int VERSION = 5;     //  Also bumped when loading rules change the graph
+    private static final int HEADER_BYTES = Integer.BYTES * 3 + Long.BYTES;
+
+    private GraphSnapshot () {
+    }
+
+    /**
+     *  Checks if the snapshot exists and was written after every source file changed
+     * @param snapshot    Snapshot file
+     * @param sourceFiles Text files the snapshot was built from
+     * @return True if the snapshot can be used instead of parsing the sources
+     */
+    public static boolean isFresh (Path snapshot, String... sourceFiles) {
+        File file = snapshot.toFile();
+        if (!file.isFile()) {
+            return false;
+        }
+        for (String source : sourceFiles) {
+            if (new File(source).lastModified() >= file.lastModified()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *  Writes the graph to a temporary file and moves it into place,
+     *  so readers never see a half-written snapshot.
+     * @param graph    Graph to store
+     * @param snapshot Destination file
+     */
+    public static void write (CountryGraph graph, Path snapshot) throws IOException {
+        int size = graph.size();
+        int edges = graph.edgeCount();
+
+        byte[][] names = new byte[size][];
+        byte[][] codes = new byte[size][];
+        int payload = Integer.BYTES * 2 + Integer.BYTES * (size + 1) + Integer.BYTES * 3 * edges;
+        for (int id = 0; id < size; id++) {
+            names[id] = graph.nameOf(id).getBytes(StandardCharsets.UTF_8);
+            codes[id] = graph.codeOf(id).getBytes(StandardCharsets.UTF_8);
+            payload += Short.BYTES * 2 + names[id].length + codes[id].length;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(payload);
+        body.putInt(size).putInt(edges);
+        for (int id = 0; id < size; id++) {
+            body.putShort((short) names[id].length).put(names[id]);
+            body.putShort((short) codes[id].length).put(codes[id]);
+        }
+        for (int id = 0; id < size; id++) {
+            body.putInt(graph.firstEdge(id));
+        }
+        body.putInt(edges);
+        for (int e = 0; e < edges; e++) {
+            body.putInt(graph.target(e));
+        }
+        for (int e = 0; e < edges; e++) {
+            body.putInt(graph.weight(e));
+        }
+        for (int e = 0; e < edges; e++) {
+            body.putInt(graph.length(e));
+        }
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(payload).putLong(crc.getValue());
+        header.flip();
+
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            while (body.hasRemaining()) {
+                out.write(body);
+            }
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     *  Memory-maps a snapshot and rebuilds the graph from it
+     * @param snapshot File written by write()
+     * @return The stored graph
+     * @throws IOException If the file is unreadable, of another version or fails its checksum
+     */
+    public static CountryGraph read (Path snapshot) throws IOException {
+        try (FileChannel in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException(snapshot + " is not a graph snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException(snapshot + " has version " + version + ", expected " + VERSION);
+            }
+            int payload = buffer.getInt();
+            long expectedCrc = buffer.getLong();
+            if (buffer.remaining() != payload) {
+                throw new IOException(snapshot + " is truncated");
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != expectedCrc) {
+                throw new IOException(snapshot + " failed its checksum");
+            }
+
+            int size = buffer.getInt();
+            int edges = buffer.getInt();
+            String[] names = new String[size];
+            String[] codes = new String[size];
+            for (int id = 0; id < size; id++) {
+                names[id] = readString(buffer);
+                codes[id] = readString(buffer);
+            }
+
+            int[] offsets = new int[size + 1];
+            int[] targets = new int[edges];
+            int[] weights = new int[edges];
+            int[] lengths = new int[edges];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + Integer.BYTES * offsets.length);
+            buffer.asIntBuffer().get(targets);
+            buffer.position(buffer.position() + Integer.BYTES * edges);
+            buffer.asIntBuffer().get(weights);
+            buffer.position(buffer.position() + Integer.BYTES * edges);
+            buffer.asIntBuffer().get(lengths);
+
+            return new CountryGraph(names, codes, offsets, targets, weights, lengths);
+        }
+    }
+
+    private static String readString (ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
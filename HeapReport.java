@@ -0,0 +1,67 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Set;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ *  Reports the heap retained once IRoadTrip has loaded the data files: total heap in use
+ *  after a full GC, plus the rows of the live-object class histogram (the same one
+ *  jcmd GC.class_histogram prints) for the model classes and the largest JDK classes.
+ *  Anything the loaders left reachable shows up here as well.
+ *  Run: java HeapReport [rows]
+ *  A fresh snapshot skips the text loaders; java -Diroadtrip.snapshot= HeapReport measures them.
+ */
+public class HeapReport {
+    private static final String[] FILES = {"borders.txt", "capdist.csv", "state_name.tsv"};
+    private static final Set<String> MODEL = Set.of("Country", "Country$Neighbor", "Countries", "CountryGraph",
+            "NameIndex", "CapDistTable", "java.util.Hashtable", "java.util.Hashtable$Entry", "java.util.ArrayList");
+
+    public static void main (String[] args) throws IOException, JMException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+
+        long empty = usedAfterGc();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        IRoadTrip trip;
+        try {
+            trip = new IRoadTrip(FILES);
+        } finally {
+            System.setOut(out);
+        }
+        long retained = usedAfterGc() - empty;
+
+        String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                new Object[]{new String[0]}, new String[]{String[].class.getName()});
+        Reference.reachabilityFence(trip);
+
+        System.out.printf("Retained after load: %d KB%n%n", Math.max(retained, 0) / 1024);
+        System.out.printf("%-44s %10s %12s%n", "class", "instances", "bytes");
+        int printed = 0;
+        for (String line : histogram.split("\n")) {
+            //  " 1:  12345  678900  [B (java.base@21)"
+            String[] cols = line.trim().split("\\s+");
+            if (cols.length < 4 || !cols[0].endsWith(":")) {
+                continue;
+            }
+            String name = cols[3];
+            if (MODEL.contains(name) || printed < rows) {
+                System.out.printf("%-44s %10s %12s%n", name, cols[1], cols[2]);
+                if (!MODEL.contains(name)) {
+                    printed++;
+                }
+            }
+        }
+    }
+
+    private static long usedAfterGc () {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+}
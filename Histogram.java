@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Lock-free histogram with exponentially growing buckets: bucket 'i' counts values
+ *  up to firstBound * 2^i, the last bucket counts everything larger. Recording is
+ *  one bit scan and two LongAdder increments, so it is cheap enough for hot paths.
+ */
+final class Histogram {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final long firstBound;
+    private final int shift;
+    private final LongAdder[] buckets;
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     *  Creates an empty histogram
+     * @param firstBound Upper bound of the first bucket, must be a power of two
+     * @param bucketCount Number of bounded buckets (one overflow bucket is added)
+     */
+    Histogram (long firstBound, int bucketCount) {
+        this.firstBound = firstBound;
+        this.shift = Long.numberOfTrailingZeros(firstBound);
+        this.buckets = new LongAdder[bucketCount + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record (long value) {
+        int bucket = value <= firstBound ? 0 : 64 - Long.numberOfLeadingZeros((value - 1) >>> shift);
+        buckets[Math.min(bucket, buckets.length - 1)].increment();
+        sum.add(value);
+    }
+
+    long count () {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    long sum () {
+        return sum.sum();
+    }
+
+    /**
+     *  Estimates a quantile as the upper bound of the bucket holding it
+     * @param quantile Value in [0, 1]
+     * @return Upper bound of the bucket, or 0 if nothing was recorded
+     */
+    long quantile (double quantile) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return firstBound << Math.min(i, buckets.length - 2);
+            }
+        }
+        return firstBound << (buckets.length - 2);
+    }
+
+    /**
+     *  Appends the histogram in Prometheus text format
+     * @param out    Destination
+     * @param name   Metric name
+     * @param labels Extra labels ("" or e.g. "stage=\"setBorders\",")
+     * @param scale  Factor converting recorded values to the exported unit
+     */
+    void writePrometheus (StringBuilder out, String name, String labels, double scale) {
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length - 1; i++) {
+            cumulative += buckets[i].sum();
+            out.append(name).append("_bucket{").append(labels).append("le=\"")
+                    .append((firstBound << i) * scale).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += buckets[buckets.length - 1].sum();
+        out.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+
+        String braces = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        out.append(name).append("_sum").append(braces).append(' ').append(sum.sum() * scale).append('\n');
+        out.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+    }
+}
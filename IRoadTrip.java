@@ -1,9 +1,23 @@
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class IRoadTrip {
     /*
@@ -11,15 +25,17 @@ public class IRoadTrip {
      *  Global Constants  *
      **********************
      */
-    private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-    private static final Countries map = Countries.getInstance();   //  Get the singular instance of the collection of countries
     private static final Scanner scan = new Scanner(System.in);
+    private static final Pattern BORDER_ENTRY = Pattern.compile("(.+?)\\s+([\\d,]+(?:\\.\\d+)?)\\s*km");
     private static final Dictionary<String, String> knownFiles = new Hashtable<>() {{
         put("borders", "borders.txt");
         put("capDist", "capdist.csv");
         put("stateNames", "state_name.tsv");
     }};
-    private static BufferedReader reader;
+    private final AtomicReference<RouteService> routes;     //  Swapped as a whole by GraphReloader
+    private final TemporalRoutes temporal;
+    private final AsyncRouter async;                        //  Serves findPathAsync, threads start on first use
+    private final AtomicReference<StateTimeline> timeline = new AtomicReference<>();   //  Every stateNames row
 
     /**
      * Constructs initial program state. Checks args to ensure all files are present
@@ -56,11 +72,11 @@ public class IRoadTrip {
          *************************************
          *  Order For Proper Initialization  *
          *************************************
-         *  1)  Read State Names file to populate known countries
-         *  2)  Populate known countries with info from files
-         *      a)  Read Borders file to get all border pairings
-         *      b)  Read Cap Dist file to get all cap dist measurements
-         *      c)  Populate each country's neighbors using info from steps 'a' and 'b'
+         *  1)  In parallel (see LoadPipeline):
+         *      a)  Read State Names file to populate known countries
+         *      b)  Read Borders file to get all border pairings
+         *      c)  Read Cap Dist file to get all cap dist measurements
+         *  2)  Populate each country's neighbors using info from step 1
          */
 
 
@@ -75,65 +91,294 @@ public class IRoadTrip {
             System.exit(1);
         }
 
-        readStateNames(knownFiles.get("stateNames"));
-        setBorders(readBorders(knownFiles.get("borders")), readCapDistance(knownFiles.get("capDist")));
+        if (Metrics.ENABLED) {
+            Metrics.getInstance();     //  Publish the MBean before loading starts
+        }
+
+        //  Skip parsing entirely when a snapshot newer than every source file exists
+        Path snapshot = snapshotPath();
+        CountryGraph graph = null;
+        CapDistTable capDist = null;
+        if (snapshot != null && GraphSnapshot.isFresh(snapshot, knownFiles.get("stateNames"),
+                knownFiles.get("borders"), knownFiles.get("capDist"))) {
+            try {
+                graph = GraphSnapshot.read(snapshot);
+                //  The legacy accessors (Countries, Country.getNeighbors) answer as if the files were parsed
+                Countries.setInstance(Countries.fromGraph(graph));
+                System.out.println(snapshot + " has been loaded.");
+            } catch (IOException e) {
+                System.out.println("Ignoring snapshot: " + e.getMessage());
+            }
+        }
+
+        if (graph == null) {
+            //  Parse all files in parallel, resolve borders, then compile the finished map
+            //  once so routing never touches names.
+            Countries countries = new Countries();
+            LoadPipeline pipeline = new LoadPipeline(Math.min(Runtime.getRuntime().availableProcessors(), 4), countries);
+            graph = pipeline.run(knownFiles.get("stateNames"), knownFiles.get("borders"), knownFiles.get("capDist"));
+            Countries.setInstance(countries);
+            System.out.println(pipeline.report());
+            capDist = pipeline.getCapDistTable();
+            timeline.set(pipeline.getStateTimeline());
+
+            if (snapshot != null) {
+                try {
+                    GraphSnapshot.write(graph, snapshot);
+                } catch (IOException e) {
+                    System.out.println("Could not write snapshot: " + e.getMessage());
+                }
+            }
+        }
+
+        graph = graph.withCapitals(loadCapitals(graph, capDist));
+
+        //  Queries only read this immutable snapshot, never the Countries map.
+        routes = new AtomicReference<>(createRoutes(graph));
+        temporal = new TemporalRoutes(timeline::get, routes::get, IRoadTrip::createRoutes, knownFiles.get("stateNames"),
+                knownFiles.get("borders"), knownFiles.get("capDist"));
+        async = createAsyncRouter(routes::get);
     }
 
     /**
-     * Main driver loop for the program. Creates initial objects/data structures
+     * Builds the query service for a compiled graph with the options given as system properties
+     *
+     * @param graph Compiled graph
+     * @return Service holding the graph, its PathFinder and cache
+     */
+    private static RouteService createRoutes (CountryGraph graph) {
+        RouteService service = new RouteService(graph, Boolean.getBoolean("iroadtrip.precompute"),
+                Integer.getInteger("iroadtrip.cache.size", 4096), Long.getLong("iroadtrip.cache.ttl", 0L),
+                PathFinder.Strategy.valueOf(System.getProperty("iroadtrip.strategy", "DIJKSTRA").toUpperCase()));
+        if (service.getPrecomputed() != null) {
+            System.out.println(service.getPrecomputed().report());
+        }
+        if (service.getPathFinder().getHierarchy() != null) {
+            System.out.println(service.getPathFinder().getHierarchy().report());
+        }
+        return service;
+    }
+
+    /**
+     * Builds the router behind findPathAsync with the options given as system properties
+     *
+     * @param routes Supplier of the current query service
+     * @return Router on its own pool of daemon threads
+     */
+    private static AsyncRouter createAsyncRouter (Supplier<RouteService> routes) {
+        return new AsyncRouter(routes,
+                Integer.getInteger("iroadtrip.async.threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("iroadtrip.async.capacity", 1024),
+                AsyncRouter.Rejection.valueOf(System.getProperty("iroadtrip.async.rejection", "ABORT").toUpperCase()));
+    }
+
+    /**
+     * Starts watching the source files. A change rebuilds the graph in the background and
+     * swaps it in for every later query (see GraphReloader).
+     *
+     * @return The running reloader, close it to stop watching
+     */
+    public GraphReloader watchFiles () throws IOException {
+        GraphReloader reloader = new GraphReloader(this, routes, IRoadTrip::createRoutes, knownFiles.get("stateNames"),
+                knownFiles.get("borders"), knownFiles.get("capDist"), snapshotPath());
+        reloader.start();
+        return reloader;
+    }
+
+    /**
+     * Location of the binary graph snapshot. Defaults to 'iroadtrip.snapshot' next to
+     * the stateNames file, can be moved with -Diroadtrip.snapshot=path or disabled by
+     * setting that property to an empty string.
+     *
+     * @return Snapshot path or null if disabled
+     */
+    private static Path snapshotPath () {
+        String override = System.getProperty("iroadtrip.snapshot");
+        if (override != null) {
+            return override.isEmpty() ? null : Path.of(override);
+        }
+        Path dir = Path.of(knownFiles.get("stateNames")).toAbsolutePath().getParent();
+        return dir.resolve("iroadtrip.snapshot");
+    }
+
+    /**
+     * Location of the capital distance matrix, mapped by every process using the same data.
+     * Defaults to 'iroadtrip.capitals' next to the stateNames file, can be moved with
+     * -Diroadtrip.capitals=path or kept in memory only by setting that property to an empty string.
+     *
+     * @return Matrix path or null if disabled
+     */
+    private static Path capitalsPath () {
+        String override = System.getProperty("iroadtrip.capitals");
+        if (override != null) {
+            return override.isEmpty() ? null : Path.of(override);
+        }
+        Path dir = Path.of(knownFiles.get("stateNames")).toAbsolutePath().getParent();
+        return dir.resolve("iroadtrip.capitals");
+    }
+
+    /**
+     * Maps the capital distance matrix of a graph. The file is reused while it is newer than the
+     * stateNames and capDist files and was built for the same countries, otherwise it is rebuilt.
      *
-     * @param args List of files, must match 'knownFiles' values
+     * @param graph   Graph whose ids index the matrix
+     * @param capDist Table just parsed for this graph, or null to parse the capDist file only if needed
+     * @return Matrix for every pair of countries in graph
      */
-    public static void main (String[] args) throws IOException, InterruptedException {
+    static CapitalDistances loadCapitals (CountryGraph graph, CapDistTable capDist) {
+        Path file = capitalsPath();
+        if (capDist == null && file != null
+                && GraphSnapshot.isFresh(file, knownFiles.get("stateNames"), knownFiles.get("capDist"))) {
+            try {
+                return CapitalDistances.open(file, graph);
+            } catch (IOException e) {
+                System.out.println("Ignoring capital matrix: " + e.getMessage());
+            }
+        }
+
+        CapDistTable table = capDist != null ? capDist : loadCapDistance(knownFiles.get("capDist"));
+        try {
+            return CapitalDistances.create(graph, table, file);
+        } catch (IOException e) {
+            System.out.println("Could not write capital matrix: " + e.getMessage());
+            try {
+                return CapitalDistances.create(graph, table, null);
+            } catch (IOException unreachable) {
+                throw new RuntimeException(unreachable);
+            }
+        }
+    }
 
-        args = new String[]{"borders.txt", "capdist.csv", "state_name.tsv"};
+    /**
+     * Main driver loop for the program. Creates initial objects/data structures
+     * <p>
+     * Usage: java IRoadTrip [files...] [--batch [input|-]] [--format csv|jsonl] [--output file] [--threads n]
+     *                                   [--serve [port]] [--watch]
+     * <p>
+     * Without --batch or --serve the interactive prompt is started. With --batch, origin/destination pairs
+     * are read from 'input' (stdin if omitted or '-') and routed by a BatchRouter. With --serve, a
+     * RouteServer answers HTTP requests on 'port' (default 8080) until the process is stopped.
+     * --watch reloads the graph whenever one of the files changes.
+     *
+     * @param args List of files, must match 'knownFiles' values (defaults are used if none are given), and options
+     */
+    public static void main (String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        String batch = null;
+        String output = null;
+        int port = -1;
+        boolean watch = false;
+        BatchRouter.Format format = BatchRouter.Format.CSV;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--batch" -> batch = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : "-";
+                case "--format" -> format = BatchRouter.Format.valueOf(args[++i].toUpperCase());
+                case "--output" -> output = args[++i];
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--watch" -> watch = true;
+                case "--serve" -> port = i + 1 < args.length && args[i + 1].matches("\\d+")
+                        ? Integer.parseInt(args[++i]) : 8080;
+                default -> files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            files.add(knownFiles.get("borders"));
+            files.add(knownFiles.get("capDist"));
+            files.add(knownFiles.get("stateNames"));
+        }
 
-        IRoadTrip a3 = new IRoadTrip(args);
+        if (port >= 0) {
+            IRoadTrip a3 = new IRoadTrip(files.toArray(new String[0]));
+            if (watch) {
+                a3.watchFiles();
+            }
+            RouteServer server = new RouteServer(a3.routes::get, port, 5);
+            //  Ctrl-C / SIGTERM: finish requests in progress before exiting
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+            System.out.println("Listening on http://localhost:" + server.getPort());
+            return;
+        }
+        if (batch == null) {
+            IRoadTrip a3 = new IRoadTrip(files.toArray(new String[0]));
+            if (watch) {
+                a3.watchFiles();
+            }
+            a3.acceptUserInput();
+            return;
+        }
 
-        a3.acceptUserInput();
+        //  Keep loading messages out of the results when they go to stdout
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        IRoadTrip a3 = new IRoadTrip(files.toArray(new String[0]));
+
+        BatchRouter router = new BatchRouter(a3.routes::get, format, threads);
+        long start = System.nanoTime();
+        long pairs;
+        try (BufferedReader in = batch.equals("-")
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                     : Files.newBufferedReader(Path.of(batch), StandardCharsets.UTF_8);
+             Writer out = output == null
+                     ? new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8), 1 << 16)
+                     : Files.newBufferedWriter(Path.of(output), StandardCharsets.UTF_8)) {
+            pairs = router.run(in, out);
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.err.println("Routed " + pairs + " pairs in " + millis + " ms (" + pairs * 1000 / millis + " pairs/s)");
     }
 
     /**
      * Reads user input to find a path between two countries. Will
      * not accept any invalid country names.
      */
-    @SuppressWarnings("BusyWait")
-    public void acceptUserInput () throws IOException, InterruptedException {
+    public void acceptUserInput () {
         while (true) {
             String start = "", end = "";
             int tries = 0;
 
             //  Ensure both start and end are valid countries
-            while (map.findCountry(start) == null) {
-                //noinspection deprecation
-                Runtime.getRuntime().exec("clear");
+            while (!routes.get().isKnown(start)) {
                 if (tries++ > 1) {
-                    System.out.println(start + " is not a valid country. Try Again.");
+                    System.out.println(start + " is not a valid country. Try Again. " + didYouMean(start));
                 }
 
                 System.out.print("Enter the name of the first country (type EXIT to quit): ");
+                if (!scan.hasNextLine()) {
+                    return;
+                }
                 start = scan.nextLine();
-                if (start.matches("EXIT")) {
+                if (start.equals("EXIT")) {
                     return;
                 }
             }
 
             tries = 0;
 
-            while (map.findCountry(end) == null) {
+            while (!routes.get().isKnown(end)) {
                 if (tries++ > 1) {
-                    System.out.println(end + " is not a valid country. Try Again.");
+                    System.out.println(end + " is not a valid country. Try Again. " + didYouMean(end));
                 }
                 System.out.print("Enter the name of the second country (type EXIT to quit): ");
+                if (!scan.hasNextLine()) {
+                    return;
+                }
                 end = scan.nextLine();
-                if (start.matches("EXIT")) {
+                if (end.equals("EXIT")) {
                     return;
                 }
             }
 
             System.out.println("Excellent. Calculating the best path. Please Wait...");
 
-            List<String> shortestPath = findPath(start, end);
+            RouteResult route = findRoute(start, end);
+            if (route.status() == RouteResult.Status.UNREACHABLE) {
+                System.out.println("There is no land route from " + start + " to " + end + ".");
+                continue;
+            }
+            List<String> shortestPath = route.path();
 
             System.out.println("Route from " + start + " to " + end + ":");
             for (int i = 1; i < shortestPath.size(); i++) {
@@ -141,12 +386,20 @@ public class IRoadTrip {
 
                 System.out.println("* " + shortestPath.get(i - 1) + " --> " + shortestPath.get(i) + " (" + dist + " km.)");
             }
-
-            //  Sleep program for 0.5s
-            Thread.sleep(500);
         }
     }
 
+    /**
+     * Builds a hint from the closest known country names
+     *
+     * @param input Name the user typed
+     * @return "Did you mean: ..." or an empty string if nothing is close
+     */
+    private String didYouMean (String input) {
+        List<String> suggestions = routes.get().suggest(input, 3);
+        return suggestions.isEmpty() ? "" : "Did you mean: " + String.join(", ", suggestions) + "?";
+    }
+
     /**
      * Retrieves the distance in km from each country's capital city
      *
@@ -155,8 +408,18 @@ public class IRoadTrip {
      * @return Distance in km from country to country
      */
     public int getDistance (String country1, String country2) {
-        Country orig = map.findCountry(country1.toLowerCase());
-        return orig.getNeighborDist(country2);
+        return routes.get().getDistance(country1, country2);
+    }
+
+    /**
+     * Retrieves the distance in km between the capitals of any two countries, neighbors or not
+     *
+     * @param country1 One country
+     * @param country2 The other country
+     * @return Distance in km, or Integer.MAX_VALUE if a name is unknown or the pair is not in the capDist file
+     */
+    public int getCapitalDistance (String country1, String country2) {
+        return routes.get().getCapitalDistance(country1, country2);
     }
 
     /**
@@ -167,20 +430,140 @@ public class IRoadTrip {
      * @return List of 'jumps' (edges) to get from country 1 to country 2
      */
     public List<String> findPath (String country1, String country2) {
-        PathFinder pf = new PathFinder();
+        return routes.get().findPath(country1, country2);
+    }
+
+    /**
+     * Returns the shortest path between the 2 countries without blocking the caller.
+     * Runs on the default router (see AsyncRouter and the iroadtrip.async.* properties).
+     *
+     * @param country1 Origin country
+     * @param country2 Destination country
+     * @return Future of the list findPath would return
+     */
+    public CompletableFuture<List<String>> findPathAsync (String country1, String country2) {
+        return async.findPathAsync(country1, country2);
+    }
+
+    /**
+     * Creates a router over this program's routes that runs on the caller's executor
+     *
+     * @param executor Executor running the searches, left running by AsyncRouter.close
+     * @param capacity Most searches queued or running at once
+     * @param policy   What to do with queries beyond the capacity
+     * @return A new router
+     */
+    public AsyncRouter newAsyncRouter (Executor executor, int capacity, AsyncRouter.Rejection policy) {
+        return new AsyncRouter(routes::get, executor, capacity, policy);
+    }
+
+    /**
+     * @return The router serving findPathAsync
+     */
+    public AsyncRouter getAsyncRouter () {
+        return async;
+    }
+
+    /**
+     * Returns the shortest route between the 2 countries, or why there is none
+     *
+     * @param country1 Origin country
+     * @param country2 Destination country
+     * @return The route and its distance, or UNKNOWN_COUNTRY / UNREACHABLE
+     */
+    public RouteResult findRoute (String country1, String country2) {
+        return routes.get().findRoute(country1, country2);
+    }
+
+    /**
+     * Returns the shortest path between the 2 countries as they were on a given date.
+     * Only states valid on that date are routed (see TemporalRoutes).
+     *
+     * @param country1 Origin country
+     * @param country2 Destination country
+     * @param asOf     Date of the query
+     * @return List of 'jumps' (edges) to get from country 1 to country 2, empty if either did not exist
+     */
+    public List<String> findPath (String country1, String country2, LocalDate asOf) {
+        return temporal.routesAsOf(asOf).findPath(country1, country2);
+    }
+
+    /**
+     * @return Dated routing over the same files
+     */
+    public TemporalRoutes getTemporalRoutes () {
+        return temporal;
+    }
+
+    /**
+     * @return Every row of the stateNames file, or null if the graph came from a snapshot
+     */
+    StateTimeline getStateTimeline () {
+        return timeline.get();
+    }
+
+    /**
+     * Replaces the stateNames rows after GraphReloader re-read the file
+     */
+    void setStateTimeline (StateTimeline rows) {
+        timeline.set(rows);
+    }
+
+    /**
+     * Closes a border for every later query (see RouteService.closeBorder)
+     *
+     * @param country1 One country
+     * @param country2 The other country
+     */
+    public void closeBorder (String country1, String country2) {
+        routes.updateAndGet(service -> service.closeBorder(country1, country2));
+    }
+
+    /**
+     * Reopens a border closed by closeBorder (see RouteService.reopenBorder)
+     *
+     * @param country1 One country
+     * @param country2 The other country
+     */
+    public void reopenBorder (String country1, String country2) {
+        routes.updateAndGet(service -> service.reopenBorder(country1, country2));
+    }
 
-        return pf.dijkstra(country1, country2);
+    /**
+     * Changes the distance of a border for every later query (see RouteService.reweightBorder)
+     *
+     * @param country1 One country
+     * @param country2 The other country
+     * @param km       New distance in km
+     */
+    public void reweightBorder (String country1, String country2, int km) {
+        routes.updateAndGet(service -> service.reweightBorder(country1, country2, km));
     }
 
     /**
      * Reads the stateNames file and populates both 'Countries.countryCodes'
-     * and 'Countries.countries' with initial info needed for further execution
+     * and 'Countries.countries' with initial info needed for further execution.
+     * Only current states go into the map; every row is kept in a StateTimeline for dated queries.
      *
      * @param filename Name of the stateNames file
      */
     public void readStateNames (String filename) throws IOException {
-        try {
-            reader = new BufferedReader(new FileReader(filename));
+        timeline.set(loadStateNames(filename, Countries.getInstance()));
+    }
+
+    /**
+     * Loader behind readStateNames. Static, like the other loaders LoadPipeline runs, so the
+     * constructor can start the pipeline without handing it a half-built IRoadTrip.
+     *
+     * @param filename Name of the stateNames file
+     * @param map      Map the current states are added to
+     * @return Every row of the file
+     */
+    static StateTimeline loadStateNames (String filename, Countries map) throws IOException {
+        long start = System.nanoTime();
+        StateTimeline.Builder history = new StateTimeline.Builder();
+        StateTimeline rows;
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             /*
              ********** Fields to read **********
              *  1)  State Number -> (ID)
@@ -196,35 +579,48 @@ public class IRoadTrip {
             line = reader.readLine();
 
             while (line != null) {
-                String[] countryInfo = line.split("\t");
-                //  Ensure exclusion of not current countries
-                if (!sdf.parse(countryInfo[4]).before(sdf.parse("2020-12-31"))) {
+                //  Ensure exclusion of not current countries from the map
+                if (history.add(line)) {
                     map.addCountryInfo(line);
                 }
                 line = reader.readLine();
             }
-
-            reader.close();
+            rows = history.build();
         } catch (ParseException e) {
             throw new RuntimeException(e);
+        } finally {
+            recordLoad("readStateNames", start);
         }
 
         System.out.println(filename + " has been read and processed.");
+        return rows;
     }
 
     /**
      * Reads the borders file specified and parses all data into pairs of borders
-     * then creates a list of pairings.
+     * then creates a list of pairings. Each entry holds "origin" (one name), "borders"
+     * (neighbor names, which may have several words) and "lengths" (the length of each
+     * border in whole km, at least 1, in the same order).
      *
      * @param filename Name of the file to read
      * @return A full list of all pairings
      */
     public List<Dictionary<String, List<String>>> readBorders (String filename) throws RuntimeException {
+        return loadBorders(filename);
+    }
+
+    /**
+     * Loader behind readBorders (static for LoadPipeline, see loadStateNames)
+     *
+     * @param filename Name of the file to read
+     * @return A full list of all pairings
+     */
+    static List<Dictionary<String, List<String>>> loadBorders (String filename) {
+        long start = System.nanoTime();
 
         List<Dictionary<String, List<String>>> allBorderPairings = new ArrayList<>();
 
-        try {
-            reader = new BufferedReader(new FileReader(filename));
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
 
             String line = reader.readLine();
             while (line != null) {
@@ -238,176 +634,129 @@ public class IRoadTrip {
                 if (borderInfo.length > 1) {
                     String[] borders = borderInfo[1].split("; ");
                     String origCountry = borderInfo[0];
-                    List<String> orig = new ArrayList<>() {{
-                        add(origCountry);
-                    }};
-                    List<String> borderList = new ArrayList<>();
+                    List<String> orig = List.of(origCountry);
+                    List<String> borderList = new ArrayList<>(borders.length);
+                    List<String> lengthList = new ArrayList<>(borders.length);
 
                     for (String country : borders) {
-                        String countryName = country.split(" ")[0];
-
-                        borderList.add(countryName);
+                        //  "Democratic Republic of the Congo 2,646 km": the name is everything before the length
+                        Matcher border = BORDER_ENTRY.matcher(country.trim());
+                        if (border.matches()) {
+                            double km = Double.parseDouble(border.group(2).replace(",", ""));
+                            borderList.add(border.group(1));
+                            lengthList.add(Long.toString(Math.max(1, Math.round(km))));
+                        }
+                        else if (!country.isBlank()) {
+                            borderList.add(country.trim());
+                            lengthList.add("0");
+                        }
                     }
 
-                    if (orig.get(0).equalsIgnoreCase("United States")) {
-                        System.out.println(" ");
-                    }
                     entry.put("origin", orig);
                     entry.put("borders", borderList);
+                    entry.put("lengths", lengthList);
 
                     allBorderPairings.add(entry);
                 }
                 line = reader.readLine();
             }
-            reader.close();
             return allBorderPairings;
         } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            recordLoad("readBorders", start);
         }
     }
 
     /**
-     * Reads the capdist file specified and
-     * parses the data into (ida, idb, kmdist)
-     * return a list of all pairings processed
+     * Reads the capdist file specified in a single streaming pass and
+     * stores every (ida, idb) -> kmdist pairing in a primitive lookup table
      *
      * @param filename Name of the file to read
-     * @return A full list of all pairings
+     * @return Table of all pairings processed
      */
-    public List<Dictionary<String, String>> readCapDistance (String filename) {
+    public CapDistTable readCapDistance (String filename) {
+        return loadCapDistance(filename);
+    }
 
+    /**
+     * Loader behind readCapDistance (static for LoadPipeline, see loadStateNames)
+     *
+     * @param filename Name of the file to read
+     * @return Table of all pairings processed
+     */
+    static CapDistTable loadCapDistance (String filename) {
+        long start = System.nanoTime();
         try {
-            List<Dictionary<String, String>> capDistInfo = new ArrayList<>();
-
-            reader = new BufferedReader(new FileReader(filename));
-
-            String line = reader.readLine();
-            line = reader.readLine();
-
-            while (line != null) {
-                Dictionary<String, String> pairings = new Hashtable<>();
-
-                String[] info = line.split(",");
-                if (info[1].matches("UKG")) {
-                    info[1] = "UK";
-                }
-                pairings.put("origin", info[1]);
-                pairings.put("dest", info[3]);
-                pairings.put("distance", info[4]);
-
-                capDistInfo.add(pairings);
-
-                line = reader.readLine();
-            }
-
-            reader.close();
-
-            //  Sort pairings by origin, then by dest (Enables biSearch while processing)
-            capDistInfo.sort((o1, o2) -> {
-                int origCompVal = o1.get("origin").compareTo(o2.get("origin"));
-                if (origCompVal == 0) {
-                    return o1.get("dest").compareTo(o2.get("dest"));
-                }
-                else {
-                    return origCompVal;
-                }
-            });
-            return capDistInfo;
+            return CapDistTable.load(filename);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            recordLoad("readCapDistance", start);
         }
+    }
 
+    /**
+     * Goes through borderPairs list and sets all valid connections to bordering countries.
+     * Replaces any borders set before. Nothing here keeps a reference to borderPairs or capDist,
+     * so both become garbage as soon as the caller drops them.
+     *
+     * @param borderPairs List of all pairings between bordering countries
+     * @param capDist     Table of distances between nation capitals
+     */
+    public void setBorders (List<Dictionary<String, List<String>>> borderPairs, CapDistTable capDist) {
+        applyBorders(borderPairs, capDist, Countries.getInstance());
     }
 
     /**
-     * Goes through borderPairs list and sets all valid connections to bordering countries
+     * Loader behind setBorders (static for LoadPipeline, see loadStateNames)
      *
      * @param borderPairs List of all pairings between bordering countries
-     * @param capDistInfo List of distances between nation capitals
+     * @param capDist     Table of distances between nation capitals
+     * @param map         Map whose countries get the borders
      */
-    public void setBorders (List<Dictionary<String, List<String>>> borderPairs, List<Dictionary<String, String>> capDistInfo) {
-        Countries map = Countries.getInstance();
-        Dictionary<String, String> distInfo;
+    static void applyBorders (List<Dictionary<String, List<String>>> borderPairs, CapDistTable capDist,
+                              Countries map) {
+        long startTime = System.nanoTime();
+        BorderBuilder builder = new BorderBuilder(map.countries.size());
 
         for (Dictionary<String, List<String>> pair : borderPairs) {
             String origin = pair.get("origin").get(0);
             List<String> borders = pair.get("borders");
+            List<String> lengths = pair.get("lengths");
 
-            //  Edge cases due to inconsistent naming conventions
-            if (origin.contains("United States")) {
-                origin = "United States of America";
-            }
-            if (origin.contains("Germany")) {
-                origin = "German Federal Republic";
-            }
-            Country start = map.findCountry(origin);
+            //  Spellings differ between files, NameIndex maps every known variant
+            Country start = map.resolveCountry(origin);
 
             //  Ensure skipping of non-existent countries
             if (start != null) {
-                for (String border : borders) {
-                    if (border.equalsIgnoreCase("US")) {
-                        border = "United States of America";
-                    }
-                    Country end = map.findCountry(border);
-                    if (end != null) {
-                        //  Retrieve info from capDistInfo list
-                        distInfo = biSearchCapDist(capDistInfo, 0, capDistInfo.size() - 1, start.getCode(), end.getCode());
-
-                        if (distInfo != null) {
-                            //  Convert String dist to int
-                            int distance = Integer.parseInt(distInfo.get("distance"));
-
-                            //  Add link to both countries, since borders work two ways
-                            start.addNeighbor(border, distance);
-                            end.addNeighbor(origin, distance);
+                for (int i = 0; i < borders.size(); i++) {
+                    Country end = map.resolveCountry(borders.get(i));
+                    if (end != null && end != start) {
+                        //  Retrieve info from capDist table
+                        int distance = capDist.get(start.getCode(), end.getCode());
+
+                        if (distance != -1) {
+                            //  Added both ways, since borders work two ways
+                            builder.add(start.getIndex(), end.getIndex(), distance, Integer.parseInt(lengths.get(i)));
                         }
                     }
                 }
             }
         }
+        map.setNeighbors(builder);
+        recordLoad("setBorders", startTime);
     }
 
     /**
-     * Performs binary search on borderDistances list
+     * Records the duration of a loader call when metrics are enabled (see Metrics)
      *
-     * @param capDistInfo List of measurements between capitals belonging to two nations
-     * @param left        Index of the furthest left value to search through
-     * @param right       Index of the furthest right value to search through
-     * @param origin      3-Letter code of starting country
-     * @param dest        3-Letter code of the destination country
-     * @return Dictionary entry containing the distance in km from origin to dest
+     * @param stage Name of the loader
+     * @param start System.nanoTime() when it started
      */
-    private Dictionary<String, String> biSearchCapDist (List<Dictionary<String, String>> capDistInfo,
-                                                        int left, int right, String origin, String dest) {
-        int mid = ((right - left) / 2) + left;
-
-        Dictionary<String, String> entry = capDistInfo.get(mid);
-
-        String entryOrigin = entry.get("origin"), entryDest = entry.get("dest");
-
-        int origMatch = entryOrigin.compareToIgnoreCase(origin);
-        int destMatch = entryDest.compareToIgnoreCase(dest);
-
-        if (right - left < 0) {
-            return null;
-        }
-        //  Matching Dictionary found, return entry
-        if (origMatch == 0 && destMatch == 0) {
-            return entry;
-        }
-
-        if (origMatch > 0) {
-            return biSearchCapDist(capDistInfo, left, mid - 1, origin, dest);
-        }
-        if (origMatch < 0) {
-            return biSearchCapDist(capDistInfo, mid + 1, right, origin, dest);
-        }
-
-        //  If origin is found, check for matching dest
-        //  If entryDest is larger than "dest" move left
-        if (destMatch > 0) {
-            return biSearchCapDist(capDistInfo, left, mid - 1, origin, dest);
+    static void recordLoad (String stage, long start) {
+        if (Metrics.ENABLED) {
+            Metrics.getInstance().recordLoad(stage, start);
         }
-        return biSearchCapDist(capDistInfo, mid + 1, right, origin, dest);
     }
-}
\ No newline at end of file
+}
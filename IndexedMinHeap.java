@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+/**
+ *  Binary min-heap of int ids keyed by int priorities. Every id is stored at most
+ *  once; lowering the key of an id already in the heap moves it in place
+ *  (decrease-key) instead of adding a duplicate entry. Arrays are sized once
+ *  for the id range so no allocation happens after construction.
+ */
+final class IndexedMinHeap {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final int[] heap;
+    private final int[] position;
+    private final int[] keys;
+    private int size;
+
+    //  Operations since the last clear, read by Metrics
+    int pushes;
+    int pops;
+    int decreaseKeys;
+
+    /**
+     *  Creates an empty heap able to hold ids in [0, capacity)
+     * @param capacity Number of distinct ids
+     */
+    IndexedMinHeap (int capacity) {
+        heap = new int[capacity];
+        keys = new int[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty () {
+        return size == 0;
+    }
+
+    int size () {
+        return size;
+    }
+
+    boolean contains (int id) {
+        return position[id] != -1;
+    }
+
+    int keyOf (int id) {
+        return keys[id];
+    }
+
+    /**
+     *  Removes every remaining entry. Costs O(entries left), not O(capacity)
+     */
+    void clear () {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+        pushes = 0;
+        pops = 0;
+        decreaseKeys = 0;
+    }
+
+    /**
+     *  Inserts id with key, or lowers its key if it is already present
+     * @param id  Id to insert
+     * @param key Priority of the id
+     * @return True if the heap changed
+     */
+    boolean pushOrDecrease (int id, int key) {
+        int at = position[id];
+        if (at == -1) {
+            at = size++;
+            heap[at] = id;
+            position[id] = at;
+            pushes++;
+        }
+        else if (key >= keys[id]) {
+            return false;
+        }
+        else {
+            decreaseKeys++;
+        }
+        keys[id] = key;
+        siftUp(at);
+        return true;
+    }
+
+    /**
+     * @return The id holding the smallest key, without removing it
+     */
+    int peek () {
+        return heap[0];
+    }
+
+    /**
+     *  Removes the id holding the smallest key
+     * @return The id removed
+     */
+    int poll () {
+        int min = heap[0];
+        position[min] = -1;
+        pops++;
+
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp (int at) {
+        int id = heap[at];
+        int key = keys[id];
+        while (at > 0) {
+            int up = (at - 1) >>> 1;
+            int parent = heap[up];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[at] = parent;
+            position[parent] = at;
+            at = up;
+        }
+        heap[at] = id;
+        position[id] = at;
+    }
+
+    private void siftDown (int at) {
+        int id = heap[at];
+        int key = keys[id];
+        int half = size >>> 1;
+        while (at < half) {
+            int child = 2 * at + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            if (key <= keys[heap[child]]) {
+                break;
+            }
+            heap[at] = heap[child];
+            position[heap[at]] = at;
+            at = child;
+        }
+        heap[at] = id;
+        position[id] = at;
+    }
+}
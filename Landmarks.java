@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+/**
+ *  ALT (A*, Landmarks, Triangle inequality) lower bounds. A few landmark countries are
+ *  chosen by farthest-point selection and their shortest distance to every country is stored.
+ *  Landmarks are shared out over the components of more than two countries in proportion to
+ *  their size, and picked within each one, so islands do not take them from the mainland.
+ *  For any landmark L, |d(L, t) - d(L, v)| never overestimates d(v, t), so the largest
+ *  of those differences is an admissible and consistent A* heuristic.
+ *  Great-circle distances between capitals were also considered, but capdist.csv rounds to
+ *  whole km and the rounding can break consistency by a km; graph distances are exact.
+ */
+final class Landmarks {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final int size;
+    private final int count;
+    private final int[] landmarks;
+    private final int[] distance;     //  distance[l * size + v]
+
+    /**
+     *  Picks landmarks and computes their distance rows
+     * @param graph      Graph the bounds are for
+     * @param pathFinder Plain Dijkstra engine for graph
+     * @param wanted     Most landmarks to pick
+     */
+    Landmarks (CountryGraph graph, PathFinder pathFinder, int wanted) {
+        size = graph.size();
+        int[] quota = quotas(graph.getComponents(), Math.min(wanted, size));
+        int picks = 0;
+        for (int q : quota) {
+            picks += q;
+        }
+        count = picks;
+        landmarks = new int[count];
+        distance = new int[count * size];
+
+        int[] closest = new int[size];
+        int[] parent = new int[size];
+        int[] row = new int[size];
+        Components components = graph.getComponents();
+        int l = 0;
+        for (int c = 0; c < quota.length; c++) {
+            if (quota[c] == 0) {
+                continue;
+            }
+            //  Start from the best connected country of the component, then always take the one
+            //  farthest from all its picks. Only ids of the component are candidates: every other
+            //  id is unreachable and would count as infinitely far.
+            int next = -1;
+            for (int id = components.start(c); id < components.end(c); id++) {
+                if (components.componentOf(id) == c && (next == -1 || degree(graph, id) > degree(graph, next))) {
+                    next = id;
+                }
+            }
+            Arrays.fill(closest, Integer.MAX_VALUE);
+            for (int k = 0; k < quota[c]; k++, l++) {
+                landmarks[l] = next;
+                pathFinder.shortestPathTree(next, row, parent);
+                System.arraycopy(row, 0, distance, l * size, size);
+
+                for (int id = components.start(c); id < components.end(c); id++) {
+                    if (components.componentOf(id) == c) {
+                        closest[id] = Math.min(closest[id], row[id]);
+                        if (closest[id] > closest[next]) {
+                            next = id;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     *  Splits the landmarks over the components in proportion to their size (largest remainder).
+     *  Components of one or two countries get none: a search there settles at most two countries.
+     * @return Number of landmarks of every component
+     */
+    private static int[] quotas (Components components, int wanted) {
+        int[] quota = new int[components.count()];
+        long covered = 0;
+        for (int c = 0; c < quota.length; c++) {
+            if (components.size(c) > 2) {
+                covered += components.size(c);
+            }
+        }
+        if (covered == 0) {
+            return quota;
+        }
+        long[] remainder = new long[quota.length];
+        int given = 0;
+        for (int c = 0; c < quota.length; c++) {
+            if (components.size(c) > 2) {
+                long share = (long) wanted * components.size(c);
+                quota[c] = (int) Math.min(share / covered, components.size(c));
+                remainder[c] = share % covered;
+                given += quota[c];
+            }
+        }
+        while (given < wanted) {
+            int best = -1;
+            for (int c = 0; c < quota.length; c++) {
+                if (components.size(c) > 2 && quota[c] < components.size(c)
+                        && (best == -1 || remainder[c] > remainder[best])) {
+                    best = c;
+                }
+            }
+            if (best == -1) {
+                break;
+            }
+            quota[best]++;
+            remainder[best] = -1;
+            given++;
+        }
+        return quota;
+    }
+
+    private static int degree (CountryGraph graph, int id) {
+        return graph.lastEdge(id) - graph.firstEdge(id);
+    }
+
+    /**
+     *  Lower bound on the distance between two countries
+     * @param from   Id of current country
+     * @param target Id of destination country
+     * @return Lower bound in km, or Integer.MAX_VALUE if target is provably unreachable
+     */
+    int lowerBound (int from, int target) {
+        int best = 0;
+        for (int l = 0, row = 0; l < count; l++, row += size) {
+            int dFrom = distance[row + from];
+            int dTarget = distance[row + target];
+            if (dFrom == Integer.MAX_VALUE || dTarget == Integer.MAX_VALUE) {
+                if (dFrom != dTarget) {
+                    return Integer.MAX_VALUE;
+                }
+                continue;
+            }
+            best = Math.max(best, Math.abs(dTarget - dFrom));
+        }
+        return best;
+    }
+}
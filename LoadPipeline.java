@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Staged loader for the three input files.
+ *  1)  stateNames, borders and capDist are parsed at the same time on a bounded executor.
+ *      capDist is further split into chunks that are parsed in parallel.
+ *  2)  All three are joined and resolved by IRoadTrip.applyBorders (setBorders).
+ *  3)  The populated Countries map is compiled into a CountryGraph.
+ *  The pipeline fills the map it was given, never the shared instance, so the caller decides
+ *  when the finished map is published (Countries.setInstance).
+ *  Wall time of every stage is recorded so startup can be broken down.
+ */
+public final class LoadPipeline {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final int threads;
+    private final Countries countries;
+    private final Map<String, Long> stageMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+    private CapDistTable capDistTable;
+    private StateTimeline stateTimeline;
+
+    /**
+     *  Creates a pipeline that runs IRoadTrip's static loaders. It holds no IRoadTrip, so the
+     *  IRoadTrip constructor can run it before the object is complete.
+     * @param threads   Maximum number of worker threads (also the number of capDist chunks)
+     * @param countries Empty map the loaders fill
+     */
+    public LoadPipeline (int threads, Countries countries) {
+        this.threads = Math.max(threads, 1);
+        this.countries = countries;
+    }
+
+    /**
+     *  Loads all files and compiles the result
+     * @param stateNames Name of the stateNames file
+     * @param borders    Name of the borders file
+     * @param capDist    Name of the capDist file
+     * @return Compiled graph of every loaded country
+     */
+    public CountryGraph run (String stateNames, String borders, String capDist) throws IOException {
+        long start = System.nanoTime();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            CompletableFuture<StateTimeline> names = CompletableFuture.supplyAsync(() -> timed("stateNames", () -> {
+                try {
+                    return IRoadTrip.loadStateNames(stateNames, countries);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }), executor);
+
+            CompletableFuture<List<Dictionary<String, List<String>>>> borderPairs = CompletableFuture.supplyAsync(
+                    () -> timed("borders", () -> IRoadTrip.loadBorders(borders)), executor);
+
+            long capStart = System.nanoTime();
+            CompletableFuture<CapDistTable> capTable = CapDistTable.loadAsync(capDist, threads, executor)
+                    .whenComplete((table, error) -> {
+                        stageMillis.put("capDist", millisSince(capStart));
+                        IRoadTrip.recordLoad("readCapDistance", capStart);
+                    });
+
+            //  Join: borders can only be resolved once every country is known
+            CompletableFuture.allOf(names, borderPairs, capTable).join();
+
+            capDistTable = capTable.join();
+            stateTimeline = names.join();
+            timed("setBorders", () -> {
+                IRoadTrip.applyBorders(borderPairs.join(), capDistTable, countries);
+                return null;
+            });
+            CountryGraph graph = timed("compile", () -> CountryGraph.compile(countries));
+
+            stageMillis.put("total", millisSince(start));
+            return graph;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return Distance table parsed by the last run, e.g. to build the CapitalDistances of its graph
+     */
+    public CapDistTable getCapDistTable () {
+        return capDistTable;
+    }
+
+    /**
+     * @return Every row of the stateNames file read by the last run (see IRoadTrip.getStateTimeline)
+     */
+    StateTimeline getStateTimeline () {
+        return stateTimeline;
+    }
+
+    private interface Stage<T> {
+        T run ();
+    }
+
+    private <T> T timed (String name, Stage<T> stage) {
+        long start = System.nanoTime();
+        try {
+            return stage.run();
+        } finally {
+            stageMillis.put(name, millisSince(start));
+        }
+    }
+
+    private static long millisSince (long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * @return Wall time in ms of every stage, in completion order
+     */
+    public Map<String, Long> getStageMillis () {
+        synchronized (stageMillis) {
+            return new LinkedHashMap<>(stageMillis);
+        }
+    }
+
+    /**
+     * @return One line summary of the stage timings
+     */
+    public String report () {
+        StringBuilder line = new StringBuilder("Load stages (ms):");
+        getStageMillis().forEach((stage, millis) -> line.append(' ').append(stage).append('=').append(millis));
+        return line.toString();
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+
+/**
+ *  Compares the streaming CapDistTable loader with the original list-of-Hashtables
+ *  loader on parse time, bytes allocated and heap still held by the result.
+ *  Run: java LoaderBenchmark [capdist.csv] [rounds]
+ */
+public class LoaderBenchmark {
+
+    public static void main (String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "capdist.csv";
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        //  Warm up both loaders before measuring
+        for (int i = 0; i < 5; i++) {
+            readLegacy(file);
+            CapDistTable.load(file);
+        }
+
+        measure("legacy list + sort", rounds, () -> readLegacy(file));
+        measure("streaming table", rounds, () -> CapDistTable.load(file));
+    }
+
+    private interface Loader {
+        Object load () throws IOException;
+    }
+
+    private static void measure (String name, int rounds, Loader loader) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        long bestNanos = Long.MAX_VALUE;
+        long allocated = 0;
+        for (int i = 0; i < rounds; i++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            loader.load();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            allocated = threads.getThreadAllocatedBytes(thread) - before;
+        }
+
+        //  Heap held by one loaded result once all parsing garbage is collected
+        long empty = usedAfterGc();
+        Object result = loader.load();
+        long retained = usedAfterGc() - empty;
+        Reference.reachabilityFence(result);
+
+        System.out.printf("%-20s best %7.2f ms   allocated %8d KB   retained %7d KB%n",
+                name, bestNanos / 1e6, allocated / 1024, Math.max(retained, 0) / 1024);
+    }
+
+    private static long usedAfterGc () {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    /**
+     *  The original IRoadTrip.readCapDistance, kept as the baseline
+     */
+    private static List<Dictionary<String, String>> readLegacy (String filename) throws IOException {
+        List<Dictionary<String, String>> capDistInfo = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            String line = reader.readLine();
+            line = reader.readLine();
+
+            while (line != null) {
+                Dictionary<String, String> pairings = new Hashtable<>();
+
+                String[] info = line.split(",");
+                pairings.put("origin", info[1]);
+                pairings.put("dest", info[3]);
+                pairings.put("distance", info[4]);
+
+                capDistInfo.add(pairings);
+                line = reader.readLine();
+            }
+        }
+        capDistInfo.sort((o1, o2) -> {
+            int origCompVal = o1.get("origin").compareTo(o2.get("origin"));
+            return origCompVal == 0 ? o1.get("dest").compareTo(o2.get("dest")) : origCompVal;
+        });
+        return capDistInfo;
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ *  Latency histograms and counters for the loaders and PathFinder queries.
+ *  Switched on with -Diroadtrip.metrics=true. The switch is a static final constant, so
+ *  when it is off the JIT removes every instrumented branch and the cost is zero.
+ *  When on, the metrics are published as a JMX MBean and, with
+ *  -Diroadtrip.metrics.out=stdout|path, dumped in Prometheus text format on exit.
+ *  Uses the same "Lazy Initialization" singleton as Countries.
+ */
+public final class Metrics implements MetricsMBean {
+    public static final boolean ENABLED = Boolean.getBoolean("iroadtrip.metrics");
+
+    private static volatile Metrics instance = null;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final Histogram queryNanos = new Histogram(1024, 26);          //  ~1 us .. ~68 s
+    private final Histogram queryBytes = new Histogram(64, 20);            //  64 B .. 64 MB
+    private final Map<String, Histogram> loadNanos = new ConcurrentHashMap<>();
+    private final LongAdder heapPushes = new LongAdder();
+    private final LongAdder heapPops = new LongAdder();
+    private final LongAdder heapDecreaseKeys = new LongAdder();
+    private final LongAdder settled = new LongAdder();
+    private final LongAdder relaxed = new LongAdder();
+
+    private Metrics () {
+    }
+
+    /**
+     *  Returns the shared instance, creating and publishing it on first use
+     * @return The metrics registry
+     */
+    public static Metrics getInstance () {
+        if (instance == null) {
+            synchronized (Metrics.class) {
+                if (instance == null) {
+                    Metrics created = new Metrics();
+                    created.publish();
+                    instance = created;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     *  Registers the MBean and the optional dump on exit
+     */
+    private void publish () {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("iroadtrip:type=Metrics"));
+        } catch (JMException e) {
+            System.out.println("Could not register metrics MBean: " + e.getMessage());
+        }
+
+        String out = System.getProperty("iroadtrip.metrics.out");
+        if (out != null && !out.isEmpty()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    dumpTo(out);
+                } catch (IOException e) {
+                    System.err.println("Could not write metrics: " + e.getMessage());
+                }
+            }));
+        }
+    }
+
+    /**
+     *  Writes all metrics in Prometheus text format
+     * @param target "stdout" or a file path
+     */
+    public void dumpTo (String target) throws IOException {
+        if (target.equals("stdout")) {
+            System.out.print(dumpPrometheus());
+        }
+        else {
+            Files.writeString(Path.of(target), dumpPrometheus());
+        }
+    }
+
+    /**
+     * @return Bytes allocated so far by the calling thread
+     */
+    static long allocatedBytes () {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     *  Records one loader call
+     * @param stage      Name of the loader
+     * @param startNanos System.nanoTime() when it started
+     */
+    public void recordLoad (String stage, long startNanos) {
+        loadNanos.computeIfAbsent(stage, s -> new Histogram(1 << 20, 16)).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     *  Records one routing query
+     * @param startNanos System.nanoTime() when it started
+     * @param startBytes allocatedBytes() when it started
+     * @param s          Scratch space the query ran in, before it is reset
+     */
+    void recordQuery (long startNanos, long startBytes, SearchScratch s) {
+        queryNanos.record(System.nanoTime() - startNanos);
+        //  Not every JVM can count allocations of the current (e.g. virtual) thread
+        if (startBytes >= 0) {
+            queryBytes.record(allocatedBytes() - startBytes);
+        }
+        settled.add(s.settledCount);
+        relaxed.add(s.relaxedCount);
+
+        recordHeap(s.heap);
+        SearchScratch reverse = s.reverseIfCreated();
+        if (reverse != null) {
+            recordHeap(reverse.heap);
+        }
+    }
+
+    private void recordHeap (IndexedMinHeap heap) {
+        heapPushes.add(heap.pushes);
+        heapPops.add(heap.pops);
+        heapDecreaseKeys.add(heap.decreaseKeys);
+    }
+
+    /*
+     ***************************
+     *  MBean Access Functions  *
+     ***************************
+     */
+
+    @Override
+    public long getQueryCount () {
+        return queryNanos.count();
+    }
+
+    @Override
+    public long getQueryP50Micros () {
+        return queryNanos.quantile(0.5) / 1000;
+    }
+
+    @Override
+    public long getQueryP99Micros () {
+        return queryNanos.quantile(0.99) / 1000;
+    }
+
+    @Override
+    public long getQueryAllocatedBytesP50 () {
+        return queryBytes.quantile(0.5);
+    }
+
+    @Override
+    public long getHeapPushes () {
+        return heapPushes.sum();
+    }
+
+    @Override
+    public long getHeapPops () {
+        return heapPops.sum();
+    }
+
+    @Override
+    public long getHeapDecreaseKeys () {
+        return heapDecreaseKeys.sum();
+    }
+
+    @Override
+    public long getSettledNodes () {
+        return settled.sum();
+    }
+
+    @Override
+    public long getRelaxedEdges () {
+        return relaxed.sum();
+    }
+
+    @Override
+    public String getLoadMillis () {
+        Map<String, Long> millis = new TreeMap<>();
+        loadNanos.forEach((stage, histogram) -> millis.put(stage, histogram.sum() / 1_000_000));
+        return millis.toString();
+    }
+
+    @Override
+    public String dumpPrometheus () {
+        StringBuilder out = new StringBuilder();
+
+        out.append("# HELP iroadtrip_query_seconds Latency of PathFinder queries\n");
+        out.append("# TYPE iroadtrip_query_seconds histogram\n");
+        queryNanos.writePrometheus(out, "iroadtrip_query_seconds", "", 1e-9);
+
+        out.append("# HELP iroadtrip_query_allocated_bytes Heap allocated by the querying thread per query\n");
+        out.append("# TYPE iroadtrip_query_allocated_bytes histogram\n");
+        queryBytes.writePrometheus(out, "iroadtrip_query_allocated_bytes", "", 1);
+
+        out.append("# HELP iroadtrip_load_seconds Duration of each loader call\n");
+        out.append("# TYPE iroadtrip_load_seconds histogram\n");
+        new TreeMap<>(loadNanos).forEach((stage, histogram) ->
+                histogram.writePrometheus(out, "iroadtrip_load_seconds", "stage=\"" + stage + "\",", 1e-9));
+
+        counter(out, "iroadtrip_heap_pushes_total", "Ids inserted into the search heap", heapPushes);
+        counter(out, "iroadtrip_heap_pops_total", "Ids removed from the search heap", heapPops);
+        counter(out, "iroadtrip_heap_decrease_keys_total",
+                "Keys lowered in place (the indexed heap never holds stale entries)", heapDecreaseKeys);
+        counter(out, "iroadtrip_settled_total", "Countries settled by queries", settled);
+        counter(out, "iroadtrip_relaxed_total", "Edges relaxed by queries", relaxed);
+        return out.toString();
+    }
+
+    private static void counter (StringBuilder out, String name, String help, LongAdder value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value.sum()).append('\n');
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ *  JMX view of the loading and routing metrics (registered as "iroadtrip:type=Metrics")
+ */
+public interface MetricsMBean {
+    long getQueryCount ();
+
+    long getQueryP50Micros ();
+
+    long getQueryP99Micros ();
+
+    long getQueryAllocatedBytesP50 ();
+
+    long getHeapPushes ();
+
+    long getHeapPops ();
+
+    long getHeapDecreaseKeys ();
+
+    long getSettledNodes ();
+
+    long getRelaxedEdges ();
+
+    String getLoadMillis ();
+
+    /**
+     * @return All metrics in Prometheus text format
+     */
+    String dumpPrometheus ();
+}
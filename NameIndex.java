@@ -0,0 +1,297 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *  Precomputed name resolution for a fixed list of countries.
+ *  Every country is reachable by its display name, its 3-Letter code and the spellings
+ *  used by borders.txt (e.g. "Burma", "Czechia", "Korea, North"). All keys are normalized
+ *  once, up front:
+ *  1)  Parenthetical qualifiers dropped: "Russia (Kaliningrad)" -> "Russia"
+ *  2)  Inverted names flipped: "Gambia, The" -> "The Gambia"
+ *  3)  Lower case, curly quotes replaced, '-' treated as a space
+ *  4)  The word "the" dropped and spaces collapsed
+ *  Exact lookups are one hash probe (two if the input is not already in canonical form).
+ *  Prefix lookups binary-search a sorted array of every word start of every key,
+ *  typo-tolerant lookups use trigrams.
+ */
+public final class NameIndex {
+    /**
+     *  Spellings that normalization alone cannot map to the state_name.tsv entry
+     */
+    private static final String[][] ALIASES = {
+            {"us", "USA"}, {"united states", "USA"}, {"america", "USA"},
+            {"uk", "UKG"}, {"great britain", "UKG"}, {"britain", "UKG"},
+            {"germany", "GFR"}, {"west germany", "GFR"},
+            {"czechia", "CZR"},
+            {"burma", "MYA"},
+            {"republic of congo", "CON"}, {"congo brazzaville", "CON"},
+            {"democratic republic of congo", "DRC"}, {"congo kinshasa", "DRC"}, {"dr congo", "DRC"},
+            {"eswatini", "SWA"},
+            {"kyrgyzstan", "KYR"},
+            {"north korea", "PRK"}, {"south korea", "ROK"},
+            {"north macedonia", "MAC"},
+            {"romania", "RUM"},
+            {"suriname", "SUR"},
+            {"timor leste", "ETM"},
+            {"uae", "UAE"},
+            {"vietnam", "DRV"}, {"viet nam", "DRV"},
+            {"bosnia and herzegovina", "BOS"},
+            {"cote d'ivoire", "CDI"}, {"ivory coast", "CDI"},
+            {"cabo verde", "CAP"},
+            {"turkiye", "TUR"},
+            {"tanzania", "TAZ"},
+            {"burkina faso", "BFO"},
+    };
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final String[] names;
+    private final Map<String, Integer> exact;
+    private final Map<String, Integer> normalized;
+    private final String[] prefixKeys;
+    private final int[] prefixIds;
+    private final String[] sortedKeys;
+    private final int[] sortedIds;
+    private final Map<String, int[]> trigrams;
+
+    /**
+     *  Builds the index
+     * @param names Display name of each country, indexed by id
+     * @param codes 3-Letter code of each country, indexed by id
+     */
+    public NameIndex (String[] names, String[] codes) {
+        this.names = names;
+        exact = new HashMap<>(names.length * 4);
+        normalized = new HashMap<>(names.length * 8);
+
+        Map<String, Integer> codeToID = new HashMap<>(codes.length * 2);
+        for (int id = 0; id < names.length; id++) {
+            exact.putIfAbsent(names[id], id);
+            exact.putIfAbsent(codes[id], id);
+            codeToID.put(codes[id], id);
+            normalized.putIfAbsent(normalize(names[id]), id);
+        }
+        for (String[] alias : ALIASES) {
+            Integer id = codeToID.get(alias[1]);
+            if (id != null) {
+                normalized.putIfAbsent(normalize(alias[0]), id);
+            }
+        }
+        //  Codes last so they never shadow a real name
+        for (int id = 0; id < codes.length; id++) {
+            normalized.putIfAbsent(normalize(codes[id]), id);
+        }
+
+        //  Every word start of every key, so "kor" finds "north korea" and "south korea"
+        List<Map.Entry<String, Integer>> starts = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : normalized.entrySet()) {
+            String key = entry.getKey();
+            for (int i = 0; i >= 0; i = key.indexOf(' ', i) < 0 ? -1 : key.indexOf(' ', i) + 1) {
+                starts.add(Map.entry(key.substring(i), entry.getValue()));
+            }
+        }
+        starts.sort(Map.Entry.comparingByKey());
+        prefixKeys = new String[starts.size()];
+        prefixIds = new int[starts.size()];
+        for (int k = 0; k < prefixKeys.length; k++) {
+            prefixKeys[k] = starts.get(k).getKey();
+            prefixIds[k] = starts.get(k).getValue();
+        }
+
+        sortedKeys = normalized.keySet().toArray(new String[0]);
+        Arrays.sort(sortedKeys);
+        sortedIds = new int[sortedKeys.length];
+        Map<String, List<Integer>> grams = new HashMap<>();
+        for (int k = 0; k < sortedKeys.length; k++) {
+            sortedIds[k] = normalized.get(sortedKeys[k]);
+            for (String gram : trigramsOf(sortedKeys[k])) {
+                grams.computeIfAbsent(gram, g -> new ArrayList<>()).add(k);
+            }
+        }
+        trigrams = new HashMap<>(grams.size() * 2);
+        grams.forEach((gram, keys) -> trigrams.put(gram, keys.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     *  Brings any spelling of a name into the form used as index key
+     * @param name Name as typed or as found in a data file
+     * @return Normalized key
+     */
+    public static String normalize (String name) {
+        String key = name;
+
+        //  Drop qualifiers: "Russia (Kaliningrad Oblast)" -> "Russia"
+        int open = key.indexOf('(');
+        if (open > 0) {
+            int close = key.indexOf(')', open);
+            key = key.substring(0, open) + (close > 0 ? key.substring(close + 1) : "");
+        }
+
+        //  Flip inverted names: "Korea, North" -> "North Korea"
+        int comma = key.indexOf(',');
+        if (comma > 0) {
+            key = key.substring(comma + 1) + " " + key.substring(0, comma);
+        }
+
+        //  Lower case words separated by single spaces, without "the"
+        StringBuilder out = new StringBuilder(key.length());
+        int wordStart = 0;
+        for (int i = 0; i <= key.length(); i++) {
+            char c = i < key.length() ? Character.toLowerCase(key.charAt(i)) : ' ';
+            if (c == '-' || Character.isWhitespace(c)) {
+                int length = out.length() - wordStart;
+                if (length == 3 && out.charAt(wordStart) == 't' && out.charAt(wordStart + 1) == 'h'
+                        && out.charAt(wordStart + 2) == 'e') {
+                    out.setLength(wordStart);
+                }
+                else if (length > 0) {
+                    out.append(' ');
+                }
+                wordStart = out.length();
+                continue;
+            }
+            out.append(c == '\u2019' ? '\'' : c);
+        }
+        if (!out.isEmpty() && out.charAt(out.length() - 1) == ' ') {
+            out.setLength(out.length() - 1);
+        }
+        return out.toString();
+    }
+
+    /**
+     *  Resolves any known spelling of a country
+     * @param name Name, alias or 3-Letter code (case-insensitive)
+     * @return Id of the country or -1 if unknown
+     */
+    public int idOf (String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer id = exact.get(name);
+        if (id == null) {
+            id = normalized.get(normalize(name));
+        }
+        return id == null ? -1 : id;
+    }
+
+    /**
+     *  Suggests countries for partial or misspelled input. Names starting with the
+     *  input come first, then names within a small edit distance of it.
+     * @param query Text typed so far
+     * @param limit Maximum number of suggestions
+     * @return Display names of the suggested countries, best first
+     */
+    public List<String> suggest (String query, int limit) {
+        String key = normalize(query);
+        Set<Integer> found = new LinkedHashSet<>();
+        if (key.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        //  Prefix matches: consecutive entries from the insertion point of the sorted word starts
+        int at = Arrays.binarySearch(prefixKeys, key);
+        //  Duplicate keys are allowed, step back to the first one
+        while (at > 0 && prefixKeys[at - 1].equals(key)) {
+            at--;
+        }
+        for (int k = at < 0 ? -at - 1 : at; k < prefixKeys.length && found.size() < limit; k++) {
+            if (!prefixKeys[k].startsWith(key)) {
+                break;
+            }
+            found.add(prefixIds[k]);
+        }
+
+        //  Typo matches: keys sharing trigrams with the input, checked by edit distance
+        if (found.size() < limit && key.length() >= 4) {
+            int maxEdits = Math.max(1, key.length() / 4);
+            int[] shared = new int[sortedKeys.length];
+            for (String gram : trigramsOf(key)) {
+                for (int k : trigrams.getOrDefault(gram, new int[0])) {
+                    shared[k]++;
+                }
+            }
+
+            List<int[]> close = new ArrayList<>();
+            for (int k = 0; k < sortedKeys.length; k++) {
+                if (shared[k] > 0 && !found.contains(sortedIds[k])) {
+                    int edits = editDistance(key, sortedKeys[k], maxEdits);
+                    if (edits <= maxEdits) {
+                        close.add(new int[]{edits, -shared[k], k});
+                    }
+                }
+            }
+            close.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+            for (int[] match : close) {
+                if (found.size() >= limit) {
+                    break;
+                }
+                found.add(sortedIds[match[2]]);
+            }
+        }
+
+        List<String> out = new ArrayList<>(found.size());
+        for (int id : found) {
+            out.add(names[id]);
+        }
+        return out;
+    }
+
+    /**
+     * @return Distinct 3-letter windows of " key " (padded so word starts and ends count)
+     */
+    private static Set<String> trigramsOf (String key) {
+        String padded = " " + key + " ";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     *  Optimal string alignment distance (Levenshtein plus swapping two adjacent letters, as in
+     *  "Frnace"), giving up once it must exceed 'max'
+     * @return The distance, or max + 1 if it is larger than max
+     */
+    private static int editDistance (String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            //  Safe with transpositions too: beforePrevious[j - 2] + 1 >= previous[j - 1] >= the last rowMin
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
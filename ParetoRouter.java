@@ -0,0 +1,305 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *  Multi-criteria routing over (total capital distance, number of border crossings).
+ *  Returns every Pareto-optimal route: no other route is at least as short while crossing
+ *  at most as many borders. Each route is the shortest one for its number of crossings, so
+ *  the set runs from the route with the fewest crossings up to the shortest route.
+ *  <p>
+ *  Label-setting search (multi-criteria Dijkstra). A label is one partial route: country,
+ *  distance, crossings and parent label. Labels are expanded in order of distance plus a lower
+ *  bound of the distance still to go, fewest crossings first on ties. Three prunings keep the
+ *  label sets small:
+ *  1)  Country dominance: a label is dropped if another label at the same country is no worse
+ *      in both criteria; labels it beats are marked dead and skipped when polled.
+ *  2)  Target dominance: a label is dropped if a route already found is no worse than the best
+ *      completion the label could have. The bounds are exact distances and crossing counts to
+ *      the target, from one Dijkstra and one breadth-first search backwards from it.
+ *  3)  Countries that cannot reach the target are never entered, and a target in another
+ *      component is rejected before any search (see Components).
+ *  Scratch space is borrowed from a bounded pool for each query, like PathFinder's.
+ */
+public final class ParetoRouter {
+    /**
+     *  One Pareto-optimal route
+     * @param path      Ids from source to target
+     * @param distance  Total capital distance in km
+     * @param crossings Number of borders crossed (path.length - 1)
+     */
+    public record Route(int[] path, int distance, int crossings) {
+    }
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final CountryGraph graph;
+    private final PathFinder pathFinder;
+    private final ScratchPool<Scratch> scratch;
+    private volatile int lastLabels;
+
+    /**
+     * @param graph      Graph to route over
+     * @param pathFinder Finder over the same graph, used for the distance bounds
+     */
+    public ParetoRouter (CountryGraph graph, PathFinder pathFinder) {
+        this.graph = graph;
+        this.pathFinder = pathFinder;
+        this.scratch = new ScratchPool<>(() -> new Scratch(graph.size()));
+    }
+
+    /**
+     *  Finds every Pareto-optimal route between two countries
+     * @param source Id of originating country
+     * @param target Id of destination country
+     * @return Routes ordered by crossings (ascending) and so by distance (descending).
+     *         Empty if target cannot be reached
+     */
+    public List<Route> routes (int source, int target) {
+        if (!graph.connected(source, target)) {
+            lastLabels = 0;
+            return new ArrayList<>();
+        }
+        Scratch s = scratch.borrow();
+        s.reset();
+        try {
+            pathFinder.shortestPathTree(target, s.toTarget, s.treeParent);
+            if (s.toTarget[source] == Integer.MAX_VALUE) {
+                return new ArrayList<>();
+            }
+            hopsTo(target, s);
+
+            s.offer(s.label(source, 0, 0, -1), s.toTarget[source]);
+            while (!s.isEmpty()) {
+                int label = s.poll();
+                if (s.dead[label]) {
+                    continue;
+                }
+                int from = s.node[label];
+                for (int e = graph.firstEdge(from); e < graph.lastEdge(from); e++) {
+                    int to = graph.target(e);
+                    int bound = s.toTarget[to];
+                    if (bound == Integer.MAX_VALUE) {
+                        continue;
+                    }
+                    int distance = s.dist[label] + graph.weight(e);
+                    int crossings = s.hops[label] + 1;
+                    if (s.dominatedAtTarget(target, distance + bound, crossings + s.hopsToTarget[to])
+                            || s.dominatedAt(to, distance, crossings)) {
+                        continue;
+                    }
+                    int created = s.label(to, distance, crossings, label);
+                    if (to != target) {
+                        s.offer(created, distance + bound);
+                    }
+                }
+            }
+            lastLabels = s.labels;
+
+            List<Route> routes = new ArrayList<>();
+            for (int label = s.head[target]; label != -1; label = s.next[label]) {
+                int[] path = new int[s.hops[label] + 1];
+                for (int l = label, i = path.length - 1; l != -1; l = s.parent[l]) {
+                    path[i--] = s.node[l];
+                }
+                routes.add(new Route(path, s.dist[label], s.hops[label]));
+            }
+            routes.sort((a, b) -> Integer.compare(a.crossings(), b.crossings()));
+            return routes;
+        } finally {
+            scratch.release(s);
+        }
+    }
+
+    /**
+     * @return Number of labels created by the last query of any thread
+     */
+    public int lastLabels () {
+        return lastLabels;
+    }
+
+    /**
+     *  Breadth-first search from target: fewest crossings from every country of its component to it
+     */
+    private void hopsTo (int target, Scratch s) {
+        int[] hops = s.hopsToTarget;
+        int[] queue = s.queue;
+        Components components = graph.getComponents();
+        int component = components.componentOf(target);
+        Arrays.fill(hops, components.start(component), components.end(component), Integer.MAX_VALUE);
+        hops[target] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = target;
+        while (head < tail) {
+            int curr = queue[head++];
+            for (int e = graph.firstEdge(curr); e < graph.lastEdge(curr); e++) {
+                int next = graph.target(e);
+                if (hops[next] == Integer.MAX_VALUE) {
+                    hops[next] = hops[curr] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     *  Buffers of one query: the bounds, the labels (parallel arrays, grown on demand),
+     *  the live labels of every country as linked lists, and a binary heap of labels
+     */
+    private static final class Scratch {
+        final int[] toTarget;
+        final int[] treeParent;
+        final int[] hopsToTarget;
+        final int[] queue;
+        final int[] head;
+        final int[] touched;
+        int touchedCount;
+
+        int[] node = new int[256];
+        int[] dist = new int[256];
+        int[] hops = new int[256];
+        int[] parent = new int[256];
+        int[] next = new int[256];
+        boolean[] dead = new boolean[256];
+        int labels;
+
+        int[] heap = new int[256];
+        long[] keys = new long[256];
+        int heapSize;
+
+        Scratch (int size) {
+            toTarget = new int[size];
+            treeParent = new int[size];
+            hopsToTarget = new int[size];
+            queue = new int[size];
+            head = new int[size];
+            touched = new int[size];
+            Arrays.fill(head, -1);
+        }
+
+        void reset () {
+            for (int i = 0; i < touchedCount; i++) {
+                head[touched[i]] = -1;
+            }
+            touchedCount = 0;
+            labels = 0;
+            heapSize = 0;
+        }
+
+        /**
+         *  Creates a label and adds it to the live labels of its country
+         * @return The new label
+         */
+        int label (int at, int distance, int crossings, int from) {
+            if (labels == node.length) {
+                int grown = labels * 2;
+                node = Arrays.copyOf(node, grown);
+                dist = Arrays.copyOf(dist, grown);
+                hops = Arrays.copyOf(hops, grown);
+                parent = Arrays.copyOf(parent, grown);
+                next = Arrays.copyOf(next, grown);
+                dead = Arrays.copyOf(dead, grown);
+            }
+            int label = labels++;
+            node[label] = at;
+            dist[label] = distance;
+            hops[label] = crossings;
+            parent[label] = from;
+            dead[label] = false;
+            if (head[at] == -1) {
+                touched[touchedCount++] = at;
+            }
+            next[label] = head[at];
+            head[at] = label;
+            return label;
+        }
+
+        /**
+         *  Checks (distance, crossings) against the live labels of a country. Labels it
+         *  beats are unlinked and marked dead.
+         * @return True if a live label is no worse in both criteria
+         */
+        boolean dominatedAt (int at, int distance, int crossings) {
+            int prev = -1;
+            for (int label = head[at]; label != -1; label = next[label]) {
+                if (dist[label] <= distance && hops[label] <= crossings) {
+                    return true;
+                }
+                if (distance <= dist[label] && crossings <= hops[label]) {
+                    dead[label] = true;
+                    if (prev == -1) {
+                        head[at] = next[label];
+                    }
+                    else {
+                        next[prev] = next[label];
+                    }
+                }
+                else {
+                    prev = label;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return True if a route found to target is no worse than both bounds
+         */
+        boolean dominatedAtTarget (int target, int distanceBound, int crossingBound) {
+            for (int label = head[target]; label != -1; label = next[label]) {
+                if (dist[label] <= distanceBound && hops[label] <= crossingBound) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isEmpty () {
+            return heapSize == 0;
+        }
+
+        /**
+         *  Queues a label by (lower bound of its total distance, crossings)
+         */
+        void offer (int label, int bound) {
+            if (heapSize == heap.length) {
+                heap = Arrays.copyOf(heap, heapSize * 2);
+                keys = Arrays.copyOf(keys, heapSize * 2);
+            }
+            long key = ((long) bound << 32) | hops[label];
+            int i = heapSize++;
+            while (i > 0 && keys[(i - 1) >>> 1] > key) {
+                heap[i] = heap[(i - 1) >>> 1];
+                keys[i] = keys[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            heap[i] = label;
+            keys[i] = key;
+        }
+
+        int poll () {
+            int top = heap[0];
+            int label = heap[--heapSize];
+            long key = keys[heapSize];
+            int i = 0;
+            while (2 * i + 1 < heapSize) {
+                int child = 2 * i + 1;
+                if (child + 1 < heapSize && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                heap[i] = heap[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            heap[i] = label;
+            keys[i] = key;
+            return top;
+        }
+    }
+}
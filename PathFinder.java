@@ -1,102 +1,748 @@
-import java.util.*;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
- * Implements BFS Algorithm using an Adjacency List
- * to find the best (shortest) path.
+ * Finds the best (shortest) path over the compiled CSR graph.
+ * Works on int ids only, names are resolved at the boundary.
+ * <p>
+ * One PathFinder is shared for a graph. Each query borrows a
+ * SearchScratch from a bounded pool and gives it back when done, so a
+ * query only allocates the path it returns, also when every query runs
+ * on a new virtual thread. The number of settled countries and relaxed
+ * edges of the last query are kept so the strategies can be compared. Pairs in different components
+ * (see Components) are answered without searching.
  */
 public class PathFinder {
-    private final Countries map = Countries.getInstance();
-    private final Set<String> visited;
-    private final Dictionary<String, Integer> distance;
-    private final Dictionary<String, String> parent;
-    private final PriorityQueue<Node> nodes;
+    private static final int LANDMARKS = 8;
+    private static final int[] NO_PATH = {};    //  Answer for unreachable pairs, empty so safe to share
+
+    /**
+     *  Search algorithm used for point-to-point queries
+     */
+    public enum Strategy {
+        /** Dijkstra from the origin until the destination is settled */
+        DIJKSTRA,
+        /** Dijkstra from both ends at once, stopping when the frontiers meet */
+        BIDIRECTIONAL,
+        /** A* guided by ALT landmark lower bounds */
+        ASTAR,
+        /** Bidirectional upward search in a contraction hierarchy built with the finder */
+        CONTRACTION
+    }
+
+    private final CountryGraph graph;
+    private final Strategy strategy;
+    private final Landmarks landmarks;
+    private final ContractionHierarchy hierarchy;
+    private final ScratchPool<SearchScratch> scratch;
+    private volatile int lastSettled;
+    private volatile int lastRelaxed;
 
     /**
      *  Initializes necessary structures to calculate and store the best path
+     * @param graph Compiled graph to search
      */
-    PathFinder () {
-        nodes = new PriorityQueue<>();
-        visited = new HashSet<>();
-        distance = new Hashtable<>();
-        parent = new Hashtable<>();
+    PathFinder (CountryGraph graph) {
+        this(graph, Strategy.DIJKSTRA);
     }
 
     /**
-     *  Uses Dijkstra's Algorithm to find the shortest path between start and end
+     *  Initializes necessary structures to calculate and store the best path
+     * @param graph    Compiled graph to search
+     * @param strategy Algorithm used for point-to-point queries
+     */
+    PathFinder (CountryGraph graph, Strategy strategy) {
+        this.graph = graph;
+        this.strategy = strategy;
+        scratch = new ScratchPool<>(() -> new SearchScratch(graph.size()));
+        landmarks = strategy == Strategy.ASTAR ? new Landmarks(graph, this, LANDMARKS) : null;
+        hierarchy = strategy == Strategy.CONTRACTION ? new ContractionHierarchy(graph) : null;
+    }
+
+    public Strategy getStrategy () {
+        return strategy;
+    }
+
+    /**
+     * @return The contraction hierarchy of the CONTRACTION strategy, otherwise null
+     */
+    ContractionHierarchy getHierarchy () {
+        return hierarchy;
+    }
+
+    /**
+     * @return Countries settled by the last query of any thread
+     */
+    public int lastSettled () {
+        return lastSettled;
+    }
+
+    /**
+     * @return Edges relaxed by the last query of any thread
+     */
+    public int lastRelaxed () {
+        return lastRelaxed;
+    }
+
+    /**
+     *  Finds the shortest path between start and end
      * @param start Originating country
      * @param end   Destination Country
-     * @return  List of all countries that were jumped to, in order
+     * @return  List of all countries that were jumped to, in order. Empty if either country is unknown
      */
     public List<String> dijkstra (String start, String end) {
-        nodes.add(new Node(start, 0));
-        for (Country temp : map.countries.values()) {
-            distance.put(temp.getName(), Integer.MAX_VALUE);
+        int source = graph.idOf(start);
+        int target = graph.idOf(end);
+
+        if (source < 0 || target < 0) {
+            return List.of();
         }
-        distance.put(start, 0);
+        return graph.namesOf(dijkstra(source, target));
+    }
+
+    /**
+     *  Finds the shortest path between two country ids with the configured strategy
+     * @param source Id of originating country
+     * @param target Id of destination country
+     * @return  Ids of all countries that were jumped to, in order, starting with source.
+     *          Empty if no path exists
+     */
+    public int[] dijkstra (int source, int target) {
+        SearchScratch s = scratch.borrow();
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        long startBytes = Metrics.ENABLED ? Metrics.allocatedBytes() : 0;
+        try {
+            if (unreachable(s, source, target)) {
+                return NO_PATH;
+            }
+            if (strategy == Strategy.BIDIRECTIONAL) {
+                int meet = searchBidirectional(s, source, target);
+                return meet == -1 ? NO_PATH : joinPaths(s, meet);
+            }
+            if (strategy == Strategy.CONTRACTION) {
+                int meet = hierarchy.search(s, source, target);
+                return meet == -1 ? NO_PATH : hierarchy.path(s, meet);
+            }
+            search(s, source, target);
+            return pathTo(s, target);
+        } finally {
+            finish(s, startNanos, startBytes);
+        }
+    }
 
-        while (!nodes.isEmpty()) {
-            Node curr = nodes.remove();
+    /**
+     *  Length of the shortest path between two country ids
+     * @param source Id of originating country
+     * @param target Id of destination country
+     * @return Total distance in km, or Integer.MAX_VALUE if no path exists
+     */
+    public int shortestDistance (int source, int target) {
+        SearchScratch s = scratch.borrow();
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        long startBytes = Metrics.ENABLED ? Metrics.allocatedBytes() : 0;
+        try {
+            if (unreachable(s, source, target)) {
+                return Integer.MAX_VALUE;
+            }
+            if (strategy == Strategy.BIDIRECTIONAL) {
+                int meet = searchBidirectional(s, source, target);
+                return meet == -1 ? Integer.MAX_VALUE : s.distance[meet] + s.reverse().distance[meet];
+            }
+            if (strategy == Strategy.CONTRACTION) {
+                int meet = hierarchy.search(s, source, target);
+                return meet == -1 ? Integer.MAX_VALUE : s.distance[meet] + s.reverse().distance[meet];
+            }
+            search(s, source, target);
+            return s.distance[target];
+        } finally {
+            finish(s, startNanos, startBytes);
+        }
+    }
 
-            visited.add(curr.name);
+    /**
+     *  Runs Dijkstra from source over its whole component and copies out the shortest-path tree
+     * @param source    Id of originating country
+     * @param distance  Receives the distance to every id (Integer.MAX_VALUE if unreachable)
+     * @param parent    Receives the previous id on the path to every id (-1 for source and unreachable ids)
+     */
+    public void shortestPathTree (int source, int[] distance, int[] parent) {
+        SearchScratch s = scratch.borrow();
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        long startBytes = Metrics.ENABLED ? Metrics.allocatedBytes() : 0;
+        try {
+            search(s, source, -1, null);
+            System.arraycopy(s.distance, 0, distance, 0, s.capacity());
+            System.arraycopy(s.parent, 0, parent, 0, s.capacity());
+        } finally {
+            finish(s, startNanos, startBytes);
+        }
+    }
 
-            //  Path found
-            if (curr.name.equalsIgnoreCase(end)) {
+    /**
+     *  Runs one Dijkstra from source that stops as soon as every target is settled
+     * @param source    Id of originating country
+     * @param targets   Ids of destination countries (duplicates allowed)
+     * @param distances Receives the distance to each target (Integer.MAX_VALUE if unreachable)
+     * @param paths     If not null, receives the path to each target (empty if unreachable)
+     */
+    public void oneToMany (int source, int[] targets, int[] distances, int[][] paths) {
+        SearchScratch s = scratch.borrow();
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        long startBytes = Metrics.ENABLED ? Metrics.allocatedBytes() : 0;
+        try {
+            searchMany(s, source, targets);
+            for (int i = 0; i < targets.length; i++) {
+                distances[i] = s.distance[targets[i]];
+                if (paths != null) {
+                    paths[i] = pathTo(s, targets[i]);
+                }
+            }
+        } finally {
+            for (int target : targets) {
+                s.wanted[target] = false;
+            }
+            finish(s, startNanos, startBytes);
+        }
+    }
+
+    /**
+     *  Finds the shortest path that avoids the given countries and/or stays within a number of
+     *  border crossings. Avoided countries are skipped while relaxing edges; a crossing limit
+     *  switches to a hop-layered search (best distance using at most 1, 2, ... crossings).
+     * @param source      Id of originating country
+     * @param target      Id of destination country
+     * @param constraints Countries to avoid and crossing limit
+     * @return Ids of all countries on the path, in order. Empty if no allowed path exists
+     */
+    public int[] constrainedPath (int source, int target, RouteConstraints constraints) {
+        SearchScratch s = scratch.borrow();
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        long startBytes = Metrics.ENABLED ? Metrics.allocatedBytes() : 0;
+        try {
+            long[] avoid = constraints.avoidMask(graph.size());
+            if (unreachable(s, source, target)
+                    || RouteConstraints.isSet(avoid, source) || RouteConstraints.isSet(avoid, target)) {
+                return NO_PATH;
+            }
+            int[] path = spur(s, source, target, avoid, -1, null, null, constraints.getMaxHops());
+            return path == null ? NO_PATH : path;
+        } finally {
+            finish(s, startNanos, startBytes);
+        }
+    }
+
+    /**
+     *  Finds up to k loopless paths from source to target in order of length (Yen's algorithm).
+     *  Each new path is the best deviation ("spur") from a path found before. Three things keep
+     *  the k-1 rounds of spur searches cheap:
+     *  1)  Spur searches only start at or after the node where their parent path deviated
+     *      (Lawler), so no spur search is repeated.
+     *  2)  Without a crossing limit, spur searches are A* guided by the exact distances to the
+     *      target in the full graph. These come from one search up front; removing nodes and
+     *      edges only makes paths longer, so they stay a consistent lower bound.
+     *  3)  Every spur search runs in the query's SearchScratch and resets only what it touched.
+     *      Root nodes and removed edges are bitsets, so no graph is copied.
+     * @param source      Id of originating country
+     * @param target      Id of destination country
+     * @param k           Maximum number of paths
+     * @param constraints Countries to avoid and crossing limit, applied to every path
+     * @return Paths as ids from source to target, shortest first. Empty if there is none
+     */
+    public List<int[]> kShortestPaths (int source, int target, int k, RouteConstraints constraints) {
+        List<int[]> found = new ArrayList<>(Math.max(k, 0));
+        SearchScratch s = scratch.borrow();
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        long startBytes = Metrics.ENABLED ? Metrics.allocatedBytes() : 0;
+        int settledTotal = 0;
+        int relaxedTotal = 0;
+        try {
+            long[] avoid = constraints.avoidMask(graph.size());
+            if (k <= 0 || !graph.connected(source, target)
+                    || RouteConstraints.isSet(avoid, source) || RouteConstraints.isSet(avoid, target)) {
+                return found;
+            }
+            int maxHops = constraints.getMaxHops();
+
+            int[] toTarget = null;
+            if (maxHops == 0) {
+                search(s, target, -1, null);
+                toTarget = s.distance.clone();
+                settledTotal += s.settledCount;
+                relaxedTotal += s.relaxedCount;
+                s.reset();
+            }
+
+            int[] first = spur(s, source, target, avoid, -1, null, toTarget, maxHops);
+            settledTotal += s.settledCount;
+            relaxedTotal += s.relaxedCount;
+            if (first == null) {
+                return found;
+            }
+
+            PriorityQueue<Candidate> candidates = new PriorityQueue<>(
+                    Comparator.comparingLong(Candidate::cost).thenComparingInt(c -> c.path().length));
+            Set<IntBuffer> seen = new HashSet<>();
+            seen.add(IntBuffer.wrap(first));
+            long[] blocked = new long[avoid.length];
+
+            for (Candidate last = new Candidate(first, pathCost(first, first.length - 1), 0); last != null;
+                 last = candidates.poll()) {
+                found.add(last.path());
+                if (found.size() == k) {
+                    break;
+                }
+
+                int[] prev = last.path();
+                long rootCost = pathCost(prev, last.deviation());
+                for (int i = last.deviation(); i < prev.length - 1; i++) {
+                    int budget = maxHops == 0 ? 0 : maxHops - i;
+                    if (maxHops > 0 && budget <= 0) {
+                        break;
+                    }
+
+                    //  Leaving the spur node the way an earlier path with the same root did is not allowed
+                    Arrays.fill(blocked, 0);
+                    for (int[] path : found) {
+                        if (path.length > i + 1 && Arrays.equals(path, 0, i + 1, prev, 0, i + 1)) {
+                            RouteConstraints.set(blocked, path[i + 1]);
+                        }
+                    }
+                    //  Nor is entering the root again, the path must stay loopless
+                    long[] spurAvoid = avoid.clone();
+                    for (int j = 0; j < i; j++) {
+                        RouteConstraints.set(spurAvoid, prev[j]);
+                    }
+
+                    int[] spurPath = spur(s, prev[i], target, spurAvoid, prev[i], blocked, toTarget, budget);
+                    settledTotal += s.settledCount;
+                    relaxedTotal += s.relaxedCount;
+                    if (spurPath != null) {
+                        int[] path = new int[i + spurPath.length];
+                        System.arraycopy(prev, 0, path, 0, i);
+                        System.arraycopy(spurPath, 0, path, i, spurPath.length);
+                        if (seen.add(IntBuffer.wrap(path))) {
+                            candidates.add(new Candidate(path, rootCost + pathCost(spurPath, spurPath.length - 1), i));
+                        }
+                    }
+                    rootCost += graph.edgeWeight(prev[i], prev[i + 1]);
+                }
+            }
+            return found;
+        } finally {
+            s.settledCount = settledTotal;
+            s.relaxedCount = relaxedTotal;
+            finish(s, startNanos, startBytes);
+        }
+    }
+
+    /**
+     *  A path waiting to be accepted by kShortestPaths
+     * @param deviation Index of the spur node where it left its parent path
+     */
+    private record Candidate(int[] path, long cost, int deviation) {
+    }
+
+    /**
+     * @return Total distance of the first 'edges' edges of path
+     */
+    private long pathCost (int[] path, int edges) {
+        long cost = 0;
+        for (int i = 1; i <= edges; i++) {
+            cost += graph.edgeWeight(path[i - 1], path[i]);
+        }
+        return cost;
+    }
+
+    /**
+     *  One constrained search, leaving the scratch space reset
+     * @param avoid       Countries that must not be entered
+     * @param blockedFrom Country whose edges into 'blockedTo' are removed (-1 for none)
+     * @param blockedTo   Countries that cannot be entered from blockedFrom, or null
+     * @param toTarget    Lower bounds of the distance to target (A*), or null
+     * @param maxHops     Maximum number of crossings, or 0 for no limit
+     * @return Ids from source to target, or null if there is no allowed path
+     */
+    private int[] spur (SearchScratch s, int source, int target, long[] avoid, int blockedFrom, long[] blockedTo,
+                        int[] toTarget, int maxHops) {
+        try {
+            if (maxHops > 0) {
+                return searchHopLimited(s, source, target, avoid, blockedFrom, blockedTo, maxHops);
+            }
+            searchConstrained(s, source, target, avoid, blockedFrom, blockedTo, toTarget);
+            return s.distance[target] == Integer.MAX_VALUE ? null : pathTo(s, target);
+        } finally {
+            s.reset();
+        }
+    }
+
+    /**
+     *  Dijkstra (A* when toTarget is given) that never enters avoided countries
+     *  or removed edges. Results are left in the scratch space.
+     */
+    private void searchConstrained (SearchScratch s, int source, int target, long[] avoid, int blockedFrom,
+                                    long[] blockedTo, int[] toTarget) {
+        int[] distance = s.distance;
+        boolean[] settled = s.settled;
+        IndexedMinHeap heap = s.heap;
+        int settledCount = 0;
+        int relaxedCount = 0;
+
+        s.reach(source, 0, -1);
+        heap.pushOrDecrease(source, 0);
+
+        while (!heap.isEmpty()) {
+            int curr = heap.poll();
+            settled[curr] = true;
+            settledCount++;
+            if (curr == target) {
                 break;
             }
 
-            List<Country.Neighbor> neighborList = map.findCountry(curr.name.toLowerCase()).getNeighbors();
+            int currDist = distance[curr];
+            for (int e = graph.firstEdge(curr); e < graph.lastEdge(curr); e++) {
+                int neighbor = graph.target(e);
+                if (settled[neighbor] || RouteConstraints.isSet(avoid, neighbor)
+                        || (curr == blockedFrom && RouteConstraints.isSet(blockedTo, neighbor))) {
+                    continue;
+                }
+                int bound = toTarget == null ? 0 : toTarget[neighbor];
+                int totalDist = currDist + graph.weight(e);
+                relaxedCount++;
+
+                if (bound != Integer.MAX_VALUE && totalDist < distance[neighbor]) {
+                    s.reach(neighbor, totalDist, curr);
+                    heap.pushOrDecrease(neighbor, totalDist + bound);
+                }
+            }
+        }
+
+        s.settledCount = settledCount;
+        s.relaxedCount = relaxedCount;
+    }
+
+    /**
+     *  Hop-layered search: layer k holds the best distance to every country using at most k
+     *  crossings. Only countries improved in layer k-1 are expanded for layer k, and the search
+     *  stops early once a layer improves nothing. O(maxHops * edges) in the worst case.
+     *  Every layer is scanned over the id range of the source's component only, and there are
+     *  never more layers than the component has countries.
+     * @return Ids from source to target, or null if target cannot be reached within maxHops
+     */
+    private int[] searchHopLimited (SearchScratch s, int source, int target, long[] avoid, int blockedFrom,
+                                    long[] blockedTo, int maxHops) {
+        int size = graph.size();
+        Components components = graph.getComponents();
+        int component = components.componentOf(source);
+        int lo = components.start(component);
+        int hi = components.end(component);
+        int layers = Math.min(maxHops, components.size(component) - 1);
+        int[] distance = s.layerDistance();
+        int[] parent = s.layerParent(layers + 1);
+        int settledCount = 0;
+        int relaxedCount = 0;
 
-            for (Country.Neighbor neighbor : neighborList) {
-                if (!visited.contains(neighbor.getName())) {
-                    int totalDist = distance.get(curr.name) + neighbor.getDistToCap();
+        //  Layer 0: only the source. Parent -1 ends a path, -2 means "same as the layer below"
+        Arrays.fill(distance, lo, hi, Integer.MAX_VALUE);
+        Arrays.fill(parent, lo, hi, -2);
+        distance[source] = 0;
+        parent[source] = -1;
 
-                    if (totalDist < distance.get(neighbor.getName())) {
-                        distance.put(neighbor.getName(), totalDist);
-                        parent.put(neighbor.getName(), curr.name);
-                        nodes.add(new Node(neighbor.getName(), totalDist));
+        int last = 0;
+        for (int k = 1; k <= layers; k++) {
+            int prev = ((k - 1) & 1) * size;
+            int curr = (k & 1) * size;
+            System.arraycopy(distance, prev + lo, distance, curr + lo, hi - lo);
+            Arrays.fill(parent, k * size + lo, k * size + hi, -2);
+            boolean improved = false;
+
+            for (int from = lo; from < hi; from++) {
+                if (parent[(k - 1) * size + from] == -2 || distance[prev + from] == Integer.MAX_VALUE) {
+                    continue;
+                }
+                settledCount++;
+                for (int e = graph.firstEdge(from); e < graph.lastEdge(from); e++) {
+                    int neighbor = graph.target(e);
+                    if (RouteConstraints.isSet(avoid, neighbor)
+                            || (from == blockedFrom && RouteConstraints.isSet(blockedTo, neighbor))) {
+                        continue;
+                    }
+                    relaxedCount++;
+                    int totalDist = distance[prev + from] + graph.weight(e);
+                    if (totalDist < distance[curr + neighbor]) {
+                        distance[curr + neighbor] = totalDist;
+                        parent[k * size + neighbor] = from;
+                        improved = true;
                     }
                 }
             }
+            last = k;
+            if (!improved) {
+                break;
+            }
         }
-        List<String> bestPath = new ArrayList<>();
-        String current = end;
 
-        while (current != null) {
-            bestPath.add(0, current);
-            current = parent.get(current);
+        s.settledCount = settledCount;
+        s.relaxedCount = relaxedCount;
+        if (distance[(last & 1) * size + target] == Integer.MAX_VALUE) {
+            return null;
         }
-        return bestPath;
+
+        int[] reversed = new int[last + 1];
+        int length = 0;
+        int current = target;
+        for (int k = last; k > 0; k--) {
+            int from = parent[k * size + current];
+            if (from != -2) {
+                reversed[length++] = current;
+                current = from;
+            }
+        }
+        reversed[length++] = current;
+
+        int[] path = new int[length];
+        for (int i = 0; i < length; i++) {
+            path[i] = reversed[length - 1 - i];
+        }
+        return path;
+    }
+
+    /**
+     *  Answers the query without a search if source and target are in different components
+     * @return True if no path exists; the work counters of the query are then zero
+     */
+    private boolean unreachable (SearchScratch s, int source, int target) {
+        if (graph.connected(source, target)) {
+            return false;
+        }
+        s.settledCount = 0;
+        s.relaxedCount = 0;
+        return true;
+    }
+
+    /**
+     *  Ends a query: records its metrics (when enabled), resets the scratch space and returns it to the pool
+     */
+    private void finish (SearchScratch s, long startNanos, long startBytes) {
+        if (Metrics.ENABLED) {
+            Metrics.getInstance().recordQuery(startNanos, startBytes, s);
+        }
+        lastSettled = s.settledCount;
+        lastRelaxed = s.relaxedCount;
+        s.reset();
+        scratch.release(s);
+    }
+
+    private void searchMany (SearchScratch s, int source, int[] targets) {
+        int remaining = 0;
+        for (int target : targets) {
+            if (!s.wanted[target]) {
+                s.wanted[target] = true;
+                remaining++;
+            }
+        }
+
+        int[] distance = s.distance;
+        boolean[] settled = s.settled;
+        IndexedMinHeap heap = s.heap;
+        int settledCount = 0;
+        int relaxedCount = 0;
+
+        s.reach(source, 0, -1);
+        heap.pushOrDecrease(source, 0);
+
+        while (remaining > 0 && !heap.isEmpty()) {
+            int curr = heap.poll();
+            settled[curr] = true;
+            settledCount++;
+
+            //  Another target done, stop once all of them are
+            if (s.wanted[curr] && --remaining == 0) {
+                break;
+            }
+
+            int currDist = distance[curr];
+            for (int e = graph.firstEdge(curr); e < graph.lastEdge(curr); e++) {
+                int neighbor = graph.target(e);
+                if (!settled[neighbor]) {
+                    int totalDist = currDist + graph.weight(e);
+                    relaxedCount++;
+
+                    if (totalDist < distance[neighbor]) {
+                        s.reach(neighbor, totalDist, curr);
+                        heap.pushOrDecrease(neighbor, totalDist);
+                    }
+                }
+            }
+        }
+
+        s.settledCount = settledCount;
+        s.relaxedCount = relaxedCount;
+    }
+
+    private void search (SearchScratch s, int source, int target) {
+        search(s, source, target, strategy == Strategy.ASTAR ? landmarks : null);
     }
 
     /**
-     *  Node object to store information about each jump made and its cost
+     *  Runs Dijkstra (or A* when bounds are given) from source until target is settled
+     *  or the component is exhausted. Results are left in the scratch space for the caller to read.
      */
-    private static class Node implements Comparable<Node> {
-        private final int distFromSource;
-        private final String name;
+    private void search (SearchScratch s, int source, int target, Landmarks bounds) {
+        int[] distance = s.distance;
+        boolean[] settled = s.settled;
+        IndexedMinHeap heap = s.heap;
+        int settledCount = 0;
+        int relaxedCount = 0;
 
-        /**
-         *  Creates new Node object with source and total dist from source
-         * @param source Country Name
-         * @param distFromSource Distance in km from start to source
-         */
-        Node (String source, int distFromSource) {
-            name = source;
-            this.distFromSource = distFromSource;
+        s.reach(source, 0, -1);
+        heap.pushOrDecrease(source, 0);
+
+        while (!heap.isEmpty()) {
+            int curr = heap.poll();
+            settled[curr] = true;
+            settledCount++;
+
+            //  Path found
+            if (curr == target) {
+                break;
+            }
+
+            int currDist = distance[curr];
+            for (int e = graph.firstEdge(curr); e < graph.lastEdge(curr); e++) {
+                int neighbor = graph.target(e);
+                if (!settled[neighbor]) {
+                    int totalDist = currDist + graph.weight(e);
+                    relaxedCount++;
+
+                    if (totalDist < distance[neighbor]) {
+                        if (bounds == null) {
+                            s.reach(neighbor, totalDist, curr);
+                            heap.pushOrDecrease(neighbor, totalDist);
+                            continue;
+                        }
+                        int bound = bounds.lowerBound(neighbor, target);
+                        if (bound != Integer.MAX_VALUE) {
+                            s.reach(neighbor, totalDist, curr);
+                            heap.pushOrDecrease(neighbor, totalDist + bound);
+                        }
+                    }
+                }
+            }
+        }
+
+        s.settledCount = settledCount;
+        s.relaxedCount = relaxedCount;
+    }
+
+    /**
+     *  Alternates Dijkstra steps from source (forward scratch) and target (reverse scratch).
+     *  Borders work both ways, so the backward search uses the same edges.
+     *  Stops once the two smallest keys together can no longer beat the best meeting found.
+     * @return The country where the best path meets, or -1 if there is no path
+     */
+    private int searchBidirectional (SearchScratch forward, int source, int target) {
+        SearchScratch backward = forward.reverse();
+        int best = Integer.MAX_VALUE;
+        int meet = -1;
+        int settledCount = 0;
+        int relaxedCount = 0;
+
+        forward.reach(source, 0, -1);
+        forward.heap.pushOrDecrease(source, 0);
+        backward.reach(target, 0, -1);
+        backward.heap.pushOrDecrease(target, 0);
+        if (source == target) {
+            best = 0;
+            meet = source;
         }
 
-        /**
-         *  Custom comparator to order Priority Queue by distFromSource
-         * @param o the object to be compared.
-         * @return -1, 0, 1 corresponding to this < o, this == o, and this > o (Respectively)
-         */
-        @Override
-        public int compareTo (Node o) {
-            int compOutcome = Integer.compare(this.distFromSource, o.distFromSource);
-            if (compOutcome == 1 || compOutcome == -1) {
-                return compOutcome;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            int topForward = forward.heap.keyOf(forward.heap.peek());
+            int topBackward = backward.heap.keyOf(backward.heap.peek());
+            if ((long) topForward + topBackward >= best) {
+                break;
             }
-            return 0;
+
+            //  Expand the side with the smaller frontier
+            boolean fromSource = forward.heap.size() <= backward.heap.size();
+            SearchScratch side = fromSource ? forward : backward;
+            SearchScratch other = fromSource ? backward : forward;
+
+            int curr = side.heap.poll();
+            side.settled[curr] = true;
+            settledCount++;
+
+            int currDist = side.distance[curr];
+            for (int e = graph.firstEdge(curr); e < graph.lastEdge(curr); e++) {
+                int neighbor = graph.target(e);
+                if (side.settled[neighbor]) {
+                    continue;
+                }
+                int totalDist = currDist + graph.weight(e);
+                relaxedCount++;
+
+                if (totalDist < side.distance[neighbor]) {
+                    side.reach(neighbor, totalDist, curr);
+                    side.heap.pushOrDecrease(neighbor, totalDist);
+                }
+                if (other.distance[neighbor] != Integer.MAX_VALUE
+                        && (long) side.distance[neighbor] + other.distance[neighbor] < best) {
+                    best = side.distance[neighbor] + other.distance[neighbor];
+                    meet = neighbor;
+                }
+            }
+        }
+
+        forward.settledCount = settledCount;
+        forward.relaxedCount = relaxedCount;
+        return meet;
+    }
+
+    /**
+     *  Walks the parent links back from target
+     * @return Ids from source to target, or empty if target was never reached
+     */
+    private static int[] pathTo (SearchScratch s, int target) {
+        if (s.distance[target] == Integer.MAX_VALUE) {
+            return NO_PATH;
+        }
+        int[] parent = s.parent;
+        int length = 0;
+        for (int current = target; current != -1; current = parent[current]) {
+            length++;
         }
+
+        int[] bestPath = new int[length];
+        for (int current = target; current != -1; current = parent[current]) {
+            bestPath[--length] = current;
+        }
+        return bestPath;
+    }
+
+    /**
+     *  Joins the forward path to 'meet' with the backward path from 'meet'
+     * @return Ids from source to target
+     */
+    private static int[] joinPaths (SearchScratch forward, int meet) {
+        int[] toMeet = pathTo(forward, meet);
+        int[] backParent = forward.reverse().parent;
+
+        int length = toMeet.length;
+        for (int current = backParent[meet]; current != -1; current = backParent[current]) {
+            length++;
+        }
+
+        int[] bestPath = Arrays.copyOf(toMeet, length);
+        int i = toMeet.length;
+        for (int current = backParent[meet]; current != -1; current = backParent[current]) {
+            bestPath[i++] = current;
+        }
+        return bestPath;
     }
 }
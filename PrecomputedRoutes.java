@@ -0,0 +1,331 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ *  All-pairs shortest paths computed once for a CountryGraph. Runs one Dijkstra per
+ *  source in parallel on a fork-join pool and keeps two flat n*n tables:
+ *  the total distance of every pair and the first hop to take from the source.
+ *  Answering a query is then a walk over the next-hop table, O(path length).
+ *  <p>
+ *  When a single border changes, repair() derives the tables of the new graph from these
+ *  instead of running n searches again (see repair for the rules).
+ */
+public final class PrecomputedRoutes {
+    private static final short NO_HOP = -1;
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final CountryGraph graph;
+    private final int size;
+    private final int[] distance;
+    private final short[] nextHop;
+    private final long buildMillis;
+    private final int repairedRows;
+    private final long repairMicros;
+
+    /**
+     *  Builds both tables on the common fork-join pool
+     * @param graph      Graph to precompute
+     * @param pathFinder Search engine for graph, reused by every worker thread
+     */
+    public PrecomputedRoutes (CountryGraph graph, PathFinder pathFinder) {
+        this(graph, pathFinder, ForkJoinPool.commonPool());
+    }
+
+    /**
+     *  Builds both tables on the given fork-join pool
+     * @param graph      Graph to precompute
+     * @param pathFinder Search engine for graph, reused by every worker thread
+     * @param pool       Pool running one task per source country
+     */
+    public PrecomputedRoutes (CountryGraph graph, PathFinder pathFinder, ForkJoinPool pool) {
+        if (graph.size() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many countries for a short next-hop table: " + graph.size());
+        }
+        long start = System.nanoTime();
+
+        this.graph = graph;
+        this.size = graph.size();
+        this.distance = new int[size * size];
+        this.nextHop = new short[size * size];
+
+        pool.submit(() -> IntStream.range(0, size).parallel().forEach(source -> fillRow(pathFinder, source))).join();
+
+        buildMillis = (System.nanoTime() - start) / 1_000_000;
+        repairedRows = 0;
+        repairMicros = 0;
+    }
+
+    /**
+     *  Copies the tables of 'base' for a changed graph; rows are then repaired in place
+     */
+    private PrecomputedRoutes (PrecomputedRoutes base, CountryGraph graph) {
+        this.graph = graph;
+        this.size = base.size;
+        this.distance = base.distance.clone();
+        this.nextHop = base.nextHop.clone();
+        this.buildMillis = base.buildMillis;
+        this.repairedRows = 0;
+        this.repairMicros = 0;
+    }
+
+    /**
+     *  Derives the tables for a graph where only the border (a, b) changed from oldWeight to
+     *  newWeight (Integer.MAX_VALUE meaning closed). The tables are copied so queries still
+     *  using this instance are not affected; only rows the change can reach are touched.
+     *  1)  Longer or closed: a source row can only change if the border is tight in it
+     *      (dist(s, a) + oldWeight == dist(s, b) or the other way round). In such a row, the
+     *      affected targets are those with a shortest path over the border:
+     *      dist(s, a) + oldWeight + dist(b, t) == dist(s, t), read from the rows of a and b.
+     *      Only those targets are reset and searched again, seeded from their unaffected neighbors.
+     *  2)  Shorter or reopened: for every source the border is tried once (O(1)). Where it
+     *      improves a distance, the improvement is pushed outward Dijkstra-style. It stops at
+     *      countries whose distance does not improve, so only the changed part of each tree
+     *      is visited.
+     * @param graph      The changed graph
+     * @param a          Id of one end of the border
+     * @param b          Id of the other end
+     * @param oldWeight  Distance before the change (Integer.MAX_VALUE if it was closed)
+     * @param newWeight  Distance after the change (Integer.MAX_VALUE if it is closed now)
+     * @return Tables for the changed graph
+     */
+    public PrecomputedRoutes repair (CountryGraph graph, int a, int b, int oldWeight, int newWeight) {
+        long start = System.nanoTime();
+        PrecomputedRoutes next = new PrecomputedRoutes(this, graph);
+        IndexedMinHeap heap = new IndexedMinHeap(size);
+        boolean[] affected = new boolean[size];
+        int rows = 0;
+
+        for (int source = 0; source < size && newWeight != oldWeight; source++) {
+            boolean changed = newWeight > oldWeight
+                    ? next.repairTree(this, heap, affected, source, a, b, oldWeight)
+                    : next.propagate(heap, source, a, b, newWeight);
+            if (changed) {
+                rows++;
+            }
+        }
+        return new PrecomputedRoutes(next, rows, (System.nanoTime() - start) / 1_000);
+    }
+
+    /**
+     *  Re-routes the targets of one row whose shortest path used the lengthened border (a, b)
+     * @param base     Tables before the change, read for dist(a, t) and dist(b, t)
+     * @param affected All false on entry and on return
+     * @return True if the border was tight in the row
+     */
+    private boolean repairTree (PrecomputedRoutes base, IndexedMinHeap heap, boolean[] affected, int source,
+                                int a, int b, int oldWeight) {
+        int row = source * size;
+        long toA = base.distance[row + a];
+        long toB = base.distance[row + b];
+        if (toA == Integer.MAX_VALUE || toB == Integer.MAX_VALUE || (toA + oldWeight != toB && toB + oldWeight != toA)) {
+            return false;
+        }
+
+        //  Mark and reset every target with a shortest path over the border, in either direction.
+        //  The source itself is skipped: a border of 0 km (Brazzaville - Kinshasa) would match it
+        int[] reset = new int[size];
+        int count = 0;
+        for (int target = 0; target < size; target++) {
+            if (target == source) {
+                continue;
+            }
+            long dist = base.distance[row + target];
+            long fromA = base.distance[b * size + target];
+            long fromB = base.distance[a * size + target];
+            if (dist != Integer.MAX_VALUE && ((fromA != Integer.MAX_VALUE && toA + oldWeight + fromA == dist)
+                    || (fromB != Integer.MAX_VALUE && toB + oldWeight + fromB == dist))) {
+                affected[target] = true;
+                reset[count++] = target;
+                distance[row + target] = Integer.MAX_VALUE;
+                nextHop[row + target] = NO_HOP;
+            }
+        }
+
+        //  Seed each reset target from its best neighbor outside the affected set
+        for (int k = 0; k < count; k++) {
+            int target = reset[k];
+            for (int e = graph.firstEdge(target); e < graph.lastEdge(target); e++) {
+                int neighbor = graph.target(e);
+                if (!affected[neighbor] && distance[row + neighbor] != Integer.MAX_VALUE
+                        && distance[row + neighbor] + graph.weight(e) < distance[row + target]) {
+                    improve(heap, row, source, target, neighbor, distance[row + neighbor] + graph.weight(e));
+                }
+            }
+        }
+
+        //  Dijkstra restricted to the affected targets; everything else kept its distance
+        while (!heap.isEmpty()) {
+            int curr = heap.poll();
+            int currDist = distance[row + curr];
+            for (int e = graph.firstEdge(curr); e < graph.lastEdge(curr); e++) {
+                int neighbor = graph.target(e);
+                if (affected[neighbor] && currDist + graph.weight(e) < distance[row + neighbor]) {
+                    improve(heap, row, source, neighbor, curr, currDist + graph.weight(e));
+                }
+            }
+        }
+        heap.clear();
+
+        for (int k = 0; k < count; k++) {
+            affected[reset[k]] = false;
+        }
+        return true;
+    }
+
+    /**
+     *  Wraps repaired tables without copying them again
+     */
+    private PrecomputedRoutes (PrecomputedRoutes repaired, int repairedRows, long repairMicros) {
+        this.graph = repaired.graph;
+        this.size = repaired.size;
+        this.distance = repaired.distance;
+        this.nextHop = repaired.nextHop;
+        this.buildMillis = repaired.buildMillis;
+        this.repairedRows = repairedRows;
+        this.repairMicros = repairMicros;
+    }
+
+    /**
+     *  Tries the shortened border (a, b) in the row of source and spreads every improvement
+     * @return True if any distance of the row improved
+     */
+    private boolean propagate (IndexedMinHeap heap, int source, int a, int b, int weight) {
+        int row = source * size;
+        int toA = distance[row + a];
+        int toB = distance[row + b];
+        if (toA != Integer.MAX_VALUE && (long) toA + weight < toB) {
+            improve(heap, row, source, b, a, toA + weight);
+        }
+        else if (toB != Integer.MAX_VALUE && (long) toB + weight < toA) {
+            improve(heap, row, source, a, b, toB + weight);
+        }
+        else {
+            return false;
+        }
+
+        while (!heap.isEmpty()) {
+            int curr = heap.poll();
+            int currDist = distance[row + curr];
+            for (int e = graph.firstEdge(curr); e < graph.lastEdge(curr); e++) {
+                int neighbor = graph.target(e);
+                int totalDist = currDist + graph.weight(e);
+                if (totalDist < distance[row + neighbor]) {
+                    improve(heap, row, source, neighbor, curr, totalDist);
+                }
+            }
+        }
+        heap.clear();
+        return true;
+    }
+
+    /**
+     *  Lowers the distance of 'id' (reached from 'from') and queues it for propagation
+     */
+    private void improve (IndexedMinHeap heap, int row, int source, int id, int from, int dist) {
+        distance[row + id] = dist;
+        nextHop[row + id] = from == source ? (short) id : nextHop[row + from];
+        heap.pushOrDecrease(id, dist);
+    }
+
+    /**
+     *  Runs a full Dijkstra from source and writes its row of both tables
+     */
+    private void fillRow (PathFinder pathFinder, int source) {
+        int[] dist = new int[size];
+        int[] parent = new int[size];
+        pathFinder.shortestPathTree(source, dist, parent);
+
+        int row = source * size;
+        System.arraycopy(dist, 0, distance, row, size);
+        Arrays.fill(nextHop, row, row + size, NO_HOP);
+        nextHop[row + source] = (short) source;
+
+        //  The first hop of a target is the first hop of its parent, unless the parent is the source
+        for (int target = 0; target < size; target++) {
+            resolveHop(parent, row, source, target);
+        }
+    }
+
+    private short resolveHop (int[] parent, int row, int source, int target) {
+        if (nextHop[row + target] != NO_HOP || parent[target] == -1) {
+            return nextHop[row + target];
+        }
+        short hop = parent[target] == source ? (short) target : resolveHop(parent, row, source, parent[target]);
+        nextHop[row + target] = hop;
+        return hop;
+    }
+
+    /*
+     ***************************
+     *  Util Access Functions  *
+     ***************************
+     */
+
+    public long getBuildMillis () {
+        return buildMillis;
+    }
+
+    /**
+     * @return Rows changed by the repair that produced these tables (0 if built from scratch)
+     */
+    public int getRepairedRows () {
+        return repairedRows;
+    }
+
+    public long getRepairMicros () {
+        return repairMicros;
+    }
+
+    /**
+     * @return Bytes held by the distance and next-hop tables
+     */
+    public long getMemoryBytes () {
+        return (long) distance.length * Integer.BYTES + (long) nextHop.length * Short.BYTES;
+    }
+
+    /**
+     * @return Total distance in km from source to target, or Integer.MAX_VALUE if unreachable
+     */
+    public int distance (int source, int target) {
+        return distance[source * size + target];
+    }
+
+    /**
+     *  Walks the next-hop table from source to target
+     * @param source Id of originating country
+     * @param target Id of destination country
+     * @return Ids of every country on the path, in order. Empty if no path exists
+     */
+    public int[] path (int source, int target) {
+        if (distance[source * size + target] == Integer.MAX_VALUE) {
+            return new int[0];
+        }
+
+        int length = 1;
+        for (int current = source; current != target; current = nextHop[current * size + target]) {
+            length++;
+        }
+
+        int[] path = new int[length];
+        int i = 0;
+        for (int current = source; current != target; current = nextHop[current * size + target]) {
+            path[i++] = current;
+        }
+        path[i] = target;
+        return path;
+    }
+
+    /**
+     * @return One line summary of the precomputation cost
+     */
+    public String report () {
+        return "Precomputed " + size + "x" + size + " routes in " + buildMillis + " ms ("
+                + (getMemoryBytes() / 1024) + " KB)"
+                + (repairMicros > 0 ? ", last repair: " + repairedRows + " rows in " + repairMicros + " us" : "");
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ *  Bounded, concurrent cache of shortest paths keyed by (origin, destination) ids.
+ *  Borders work two ways with the same distance, so A -> B and B -> A share one entry:
+ *  the key is the ordered id pair and the reverse direction is served by reversing the path.
+ *  Entries are split over independently locked LRU segments to keep contention low,
+ *  and can optionally expire after a fixed time-to-live.
+ *  A cache belongs to one graph snapshot; reloading the graph creates a new, empty cache.
+ */
+public final class RouteCache {
+    private static final int SEGMENTS = 16;
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final Segment[] segments;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     *  Creates an empty cache
+     * @param maxEntries Maximum number of country pairs held
+     * @param ttlMillis  Time an entry stays valid, or 0 to never expire
+     */
+    public RouteCache (int maxEntries, long ttlMillis) {
+        int perSegment = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.maxEntries = maxEntries;
+        ttlNanos = ttlMillis * 1_000_000;
+    }
+
+    private static long key (int source, int target) {
+        return source < target ? ((long) source << 32) | target : ((long) target << 32) | source;
+    }
+
+    private Segment segmentOf (long key) {
+        return segments[(int) ((key * 0x9E3779B97F4A7C15L) >>> 60)];
+    }
+
+    /**
+     *  Looks up a cached path
+     * @param source Id of originating country
+     * @param target Id of destination country
+     * @return Ids from source to target, or null on a miss. Callers must not modify the array
+     */
+    public int[] get (int source, int target) {
+        long key = key(source, target);
+        Segment segment = segmentOf(key);
+        Entry entry;
+
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.created > ttlNanos) {
+                segment.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.path[0] == source ? entry.path : reversed(entry.path);
+    }
+
+    /**
+     *  Stores a path, evicting the least recently used pair of its segment if full
+     * @param source Id of originating country
+     * @param target Id of destination country
+     * @param path   Ids from source to target
+     */
+    public void put (int source, int target, int[] path) {
+        long key = key(source, target);
+        Segment segment = segmentOf(key);
+        //  Store in ascending id orientation so both directions hit the same entry
+        Entry entry = new Entry(source <= target ? path : reversed(path), System.nanoTime());
+
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    /**
+     *  Removes every cached pair
+     */
+    public void invalidateAll () {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     *  Copies the entries that are still valid after a graph change into a new cache with the
+     *  same limits. Entries keep their age, so the TTL still counts from when they were computed.
+     * @param keep Tests a cached path (in ascending id orientation)
+     * @return New cache holding every entry 'keep' accepts; this cache is left unchanged
+     */
+    public RouteCache copyIf (Predicate<int[]> keep) {
+        RouteCache copy = new RouteCache(maxEntries, ttlNanos / 1_000_000);
+        for (int i = 0; i < SEGMENTS; i++) {
+            synchronized (segments[i]) {
+                //  Same key, same segment; iteration order is LRU first, so recency is kept too
+                for (Map.Entry<Long, Entry> entry : segments[i].entrySet()) {
+                    if (keep.test(entry.getValue().path)) {
+                        copy.segments[i].put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+        return copy;
+    }
+
+    private static int[] reversed (int[] path) {
+        int[] out = new int[path.length];
+        for (int i = 0; i < path.length; i++) {
+            out[i] = path[path.length - 1 - i];
+        }
+        return out;
+    }
+
+    /*
+     ***************************
+     *  Util Access Functions  *
+     ***************************
+     */
+
+    public long getHits () {
+        return hits.sum();
+    }
+
+    public long getMisses () {
+        return misses.sum();
+    }
+
+    public long getEvictions () {
+        return evictions.sum();
+    }
+
+    public long getExpirations () {
+        return expirations.sum();
+    }
+
+    /**
+     * @return Fraction of lookups answered from the cache
+     */
+    public double getHitRate () {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return One line summary of the counters
+     */
+    public String report () {
+        return String.format("Route cache: hits=%d misses=%d evictions=%d expirations=%d hitRate=%.3f",
+                getHits(), getMisses(), getEvictions(), getExpirations(), getHitRate());
+    }
+
+    /**
+     *  Cached path in ascending id orientation and the time it was stored
+     */
+    private record Entry(int[] path, long created) {
+    }
+
+    /**
+     *  Access-ordered map that drops its eldest entry once over capacity
+     */
+    @SuppressWarnings("serial")
+    private final class Segment extends LinkedHashMap<Long, Entry> {
+        private final int capacity;
+
+        Segment (int capacity) {
+            super(capacity * 2, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry (Map.Entry<Long, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ *  Restrictions for a constrained search (see PathFinder.constrainedPath and kShortestPaths):
+ *  countries that must not be entered, as a bitset over country ids, and an upper bound
+ *  on the number of border crossings. Immutable.
+ */
+public final class RouteConstraints {
+    /** No restrictions */
+    public static final RouteConstraints NONE = new RouteConstraints(new long[0], 0);
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final long[] avoid;
+    private final int maxHops;
+
+    /**
+     *  Creates constraints from a ready bitset
+     * @param avoid   Bit 'id' set for every country to avoid (copied)
+     * @param maxHops Maximum number of border crossings, or 0 for no limit
+     */
+    public RouteConstraints (long[] avoid, int maxHops) {
+        if (maxHops < 0) {
+            throw new IllegalArgumentException("maxHops must not be negative: " + maxHops);
+        }
+        this.avoid = avoid.clone();
+        this.maxHops = maxHops;
+    }
+
+    /**
+     *  Creates constraints from a list of ids
+     * @param avoid   Ids of the countries to avoid
+     * @param maxHops Maximum number of border crossings, or 0 for no limit
+     * @return The constraints
+     */
+    public static RouteConstraints of (int[] avoid, int maxHops) {
+        int max = -1;
+        for (int id : avoid) {
+            max = Math.max(max, id);
+        }
+        long[] bits = new long[(max >> 6) + 1];
+        for (int id : avoid) {
+            set(bits, id);
+        }
+        return new RouteConstraints(bits, maxHops);
+    }
+
+    /**
+     * @return True if the country must not be entered
+     */
+    public boolean avoids (int id) {
+        return isSet(avoid, id);
+    }
+
+    /**
+     * @return Maximum number of border crossings, or 0 for no limit
+     */
+    public int getMaxHops () {
+        return maxHops;
+    }
+
+    /**
+     * @return True if neither countries nor crossings are restricted
+     */
+    public boolean isNone () {
+        if (maxHops > 0) {
+            return false;
+        }
+        for (long word : avoid) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *  Copies the avoid bitset, sized for 'size' ids so callers can add bits
+     * @param size Number of ids in the graph
+     * @return A new bitset
+     */
+    long[] avoidMask (int size) {
+        long[] bits = new long[(size + 63) >>> 6];
+        System.arraycopy(avoid, 0, bits, 0, Math.min(avoid.length, bits.length));
+        return bits;
+    }
+
+    /*
+     *******************
+     *  Bitset Helpers  *
+     *******************
+     */
+
+    static void set (long[] bits, int id) {
+        bits[id >>> 6] |= 1L << id;
+    }
+
+    static boolean isSet (long[] bits, int id) {
+        return (id >>> 6) < bits.length && (bits[id >>> 6] & (1L << id)) != 0;
+    }
+}
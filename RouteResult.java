@@ -0,0 +1,36 @@
+import java.util.List;
+
+/**
+ *  Outcome of one route query (see RouteService.findRoute). Tells apart the three cases a
+ *  plain path list blurs: a route was found, a name is unknown, or both countries are known
+ *  but no land route joins them (e.g. islands, whose borders entry is empty).
+ * @param status   What the query found
+ * @param path     Names of every country on the route (unmodifiable), empty unless FOUND
+ * @param distance Total distance in km, Integer.MAX_VALUE unless FOUND
+ */
+public record RouteResult(Status status, List<String> path, int distance) {
+    public enum Status {
+        /** Route in path */
+        FOUND,
+        /** Origin or destination is not a known country */
+        UNKNOWN_COUNTRY,
+        /** Both countries are known but in different components */
+        UNREACHABLE
+    }
+
+    static RouteResult found (List<String> path, int distance) {
+        return new RouteResult(Status.FOUND, path, distance);
+    }
+
+    static RouteResult unknownCountry () {
+        return new RouteResult(Status.UNKNOWN_COUNTRY, List.of(), Integer.MAX_VALUE);
+    }
+
+    static RouteResult unreachable () {
+        return new RouteResult(Status.UNREACHABLE, List.of(), Integer.MAX_VALUE);
+    }
+
+    public boolean isFound () {
+        return status == Status.FOUND;
+    }
+}
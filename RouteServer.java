@@ -0,0 +1,319 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ *  Embedded HTTP server over one shared RouteService, built on the JDK's com.sun.net.httpserver.
+ *  Every request runs on its own virtual thread; RouteService is immutable and PathFinder borrows
+ *  its scratch space from a bounded pool, so requests never lock each other and a new thread does
+ *  not allocate search buffers of its own. /batch requests route their blocks on one fixed pool
+ *  shared by all of them.
+ *  <p>
+ *  Endpoints (all responses are JSON unless noted):
+ *  1)  GET  /route?from=A&to=B     Shortest path and its length
+ *  2)  GET  /distance?from=A&to=B  Route length, the capital distance, and the border distance
+ *                                  if A and B are neighbors
+ *  3)  POST /batch[?format=csv]    One "origin,destination" pair per body line, streamed back as
+ *                                  JSON Lines (or CSV) in input order, see BatchRouter
+ *  4)  GET  /metrics               Request latency histograms in Prometheus text format
+ */
+public final class RouteServer implements AutoCloseable {
+    private static final String[] ENDPOINTS = {"/route", "/distance", "/batch", "/metrics"};
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final Supplier<RouteService> routes;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ExecutorService batchWorkers;
+    private final int batchThreads;
+    private final int graceSeconds;
+    private final BatchRouter jsonRouter;
+    private final Map<String, Histogram> latency = new HashMap<>();
+    private final Map<Integer, LongAdder> responses = new ConcurrentHashMap<>();
+
+    /**
+     *  Binds the server; it does not accept requests until start() is called
+     * @param routes       Service answering every request
+     * @param port         Port to listen on (0 picks a free port)
+     * @param graceSeconds How long close() waits for requests still in progress
+     */
+    public RouteServer (RouteService routes, int port, int graceSeconds) throws IOException {
+        this(() -> routes, port, graceSeconds);
+    }
+
+    /**
+     *  Binds a server that reads the current RouteService for every request (see GraphReloader)
+     * @param routes       Supplier of the service answering every request
+     * @param port         Port to listen on (0 picks a free port)
+     * @param graceSeconds How long close() waits for requests still in progress
+     */
+    public RouteServer (Supplier<RouteService> routes, int port, int graceSeconds) throws IOException {
+        this.routes = routes;
+        this.graceSeconds = graceSeconds;
+        this.jsonRouter = new BatchRouter(routes, BatchRouter.Format.JSONL, 1);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.batchThreads = Runtime.getRuntime().availableProcessors();
+        this.batchWorkers = Executors.newFixedThreadPool(batchThreads);
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        for (String endpoint : ENDPOINTS) {
+            latency.put(endpoint, new Histogram(1024, 26));
+        }
+        server.createContext("/route", timed("/route", this::route));
+        server.createContext("/distance", timed("/distance", this::distance));
+        server.createContext("/batch", timed("/batch", this::batch));
+        server.createContext("/metrics", timed("/metrics", this::metrics));
+    }
+
+    public void start () {
+        server.start();
+    }
+
+    /**
+     * @return Port the server is bound to
+     */
+    public int getPort () {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     *  Graceful shutdown: stops accepting connections, lets requests in progress finish
+     *  for up to the grace period, then stops their threads
+     */
+    @Override
+    public void close () {
+        server.stop(graceSeconds);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(graceSeconds, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        batchWorkers.shutdownNow();
+    }
+
+    private interface Endpoint {
+        int handle (HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     *  Wraps an endpoint with error handling and latency/status accounting
+     */
+    private HttpHandler timed (String name, Endpoint endpoint) {
+        Histogram histogram = latency.get(name);
+        return exchange -> {
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = endpoint.handle(exchange);
+            } catch (UnsupportedOperationException e) {
+                status = error(exchange, 405, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                status = error(exchange, 400, e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                status = 500;
+                if (exchange.getResponseCode() == -1) {
+                    error(exchange, status, e.toString());
+                }
+            } finally {
+                exchange.close();
+            }
+            histogram.record(System.nanoTime() - start);
+            responses.computeIfAbsent(status, code -> new LongAdder()).increment();
+        };
+    }
+
+    private int route (HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = query(exchange);
+        String from = required(query, "from");
+        String to = required(query, "to");
+
+        StringBuilder body = new StringBuilder(256);
+        if (jsonRouter.routePair(body, from, to).equals("unknown")) {
+            return error(exchange, 404, "unknown country");
+        }
+        return send(exchange, 200, "application/json", body.toString());
+    }
+
+    private int distance (HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = query(exchange);
+        String from = required(query, "from");
+        String to = required(query, "to");
+
+        RouteService service = routes.get();
+        if (!service.isKnown(from) || !service.isKnown(to)) {
+            return error(exchange, 404, "unknown country");
+        }
+        StringBuilder body = new StringBuilder(128).append("{\"origin\":");
+        BatchRouter.json(body, from).append(",\"destination\":");
+        BatchRouter.json(body, to);
+
+        int distance = service.getRouteDistance(from, to);
+        if (distance == Integer.MAX_VALUE) {
+            body.append(",\"status\":\"unreachable\"");
+        }
+        else {
+            body.append(",\"status\":\"ok\",\"distance_km\":").append(distance);
+        }
+        int border = service.getDistance(from, to);
+        if (border != Integer.MAX_VALUE) {
+            body.append(",\"border_km\":").append(border);
+        }
+        int capitals = service.getCapitalDistance(from, to);
+        if (capitals != Integer.MAX_VALUE) {
+            body.append(",\"capital_km\":").append(capitals);
+        }
+        return send(exchange, 200, "application/json", body.append("}\n").toString());
+    }
+
+    private int batch (HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "POST");
+        BatchRouter.Format format = format(query(exchange));
+        BatchRouter router = new BatchRouter(routes, format, batchWorkers, batchThreads);
+
+        exchange.getResponseHeaders().set("Content-Type",
+                format == BatchRouter.Format.CSV ? "text/csv" : "application/x-ndjson");
+        //  Length 0: chunked, results are streamed while the body is still being read
+        exchange.sendResponseHeaders(200, 0);
+        try (BufferedReader in = new BufferedReader(
+                     new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8), 1 << 16);
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 16)) {
+            router.run(in, out);
+        }
+        return 200;
+    }
+
+    private int metrics (HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP iroadtrip_http_request_seconds Latency of HTTP requests by endpoint\n");
+        out.append("# TYPE iroadtrip_http_request_seconds histogram\n");
+        for (String endpoint : ENDPOINTS) {
+            latency.get(endpoint).writePrometheus(out, "iroadtrip_http_request_seconds",
+                    "path=\"" + endpoint + "\",", 1e-9);
+        }
+        out.append("# HELP iroadtrip_http_responses_total HTTP responses by status code\n");
+        out.append("# TYPE iroadtrip_http_responses_total counter\n");
+        new TreeMap<>(responses).forEach((code, count) -> out.append("iroadtrip_http_responses_total{code=\"")
+                .append(code).append("\"} ").append(count.sum()).append('\n'));
+        if (Metrics.ENABLED) {
+            out.append(Metrics.getInstance().dumpPrometheus());
+        }
+        return send(exchange, 200, "text/plain; version=0.0.4", out.toString());
+    }
+
+    /*
+     ***************************
+     *  Util Access Functions  *
+     ***************************
+     */
+
+    private static void requireMethod (HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new UnsupportedOperationException(method + " required");
+        }
+    }
+
+    private static String required (Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("missing parameter '" + name + "'");
+        }
+        return value;
+    }
+
+    /**
+     * @return Output format named by the optional 'format' parameter, JSONL if it is missing
+     */
+    private static BatchRouter.Format format (Map<String, String> query) {
+        String value = query.getOrDefault("format", "jsonl");
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "csv" -> BatchRouter.Format.CSV;
+            case "jsonl" -> BatchRouter.Format.JSONL;
+            default -> throw new IllegalArgumentException("unknown format '" + value + "' (expected csv or jsonl)");
+        };
+    }
+
+    /**
+     *  Decodes the query string of the request URI
+     */
+    private static Map<String, String> query (HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private int error (HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder body = new StringBuilder("{\"error\":");
+        BatchRouter.json(body, message == null ? "" : message);
+        if (status == 404) {
+            RouteService service = routes.get();
+            Map<String, String> query = query(exchange);
+            body.append(",\"suggestions\":[");
+            String sep = "";
+            for (String name : List.of("from", "to")) {
+                String value = query.get(name);
+                if (value != null && !service.isKnown(value)) {
+                    for (String suggestion : service.suggest(value, 3)) {
+                        BatchRouter.json(body.append(sep), suggestion);
+                        sep = ",";
+                    }
+                }
+            }
+            body.append(']');
+        }
+        return send(exchange, status, "application/json", body.append("}\n").toString());
+    }
+
+    private static int send (HttpExchange exchange, int status, String type, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,581 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ *  Thread-safe query API over one immutable CountryGraph snapshot.
+ *  The snapshot and the PathFinder are held in final fields, so a RouteService
+ *  handed to other threads (platform or virtual) is safely published and can be
+ *  queried concurrently without any locking. Per-query search state lives in
+ *  the PathFinder's scratch space, never in shared fields.
+ */
+public final class RouteService {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final CountryGraph graph;
+    private final PathFinder pathFinder;
+    private final PrecomputedRoutes precomputed;
+    private final RouteCache cache;
+    private final ParetoRouter pareto;
+    private final Map<Long, int[]> closedBorders;       //  Ordered id pair -> {distance, length} before closing
+    private final List<BorderEdit> edits;               //  Border changes since the graph was loaded, oldest first
+
+    /**
+     *  One runtime border change, kept so it can be replayed on a reloaded graph (see replayOnto)
+     */
+    private record BorderEdit(Kind kind, String country1, String country2, int km) {
+        enum Kind {
+            CLOSE,
+            REOPEN,
+            REWEIGHT
+        }
+
+        RouteService applyTo (RouteService service) {
+            return switch (kind) {
+                case CLOSE -> service.closeBorder(country1, country2);
+                case REOPEN -> service.reopenBorder(country1, country2);
+                case REWEIGHT -> service.reweightBorder(country1, country2, km);
+            };
+        }
+    }
+
+    /**
+     *  Creates a service over a fully compiled graph
+     * @param graph Immutable graph snapshot to serve queries from
+     */
+    public RouteService (CountryGraph graph) {
+        this(graph, false);
+    }
+
+    /**
+     *  Creates a service over a fully compiled graph
+     * @param graph      Immutable graph snapshot to serve queries from
+     * @param precompute If true, all-pairs routes are computed up front and queries become table walks
+     */
+    public RouteService (CountryGraph graph, boolean precompute) {
+        this(graph, precompute, 0, 0, PathFinder.Strategy.DIJKSTRA);
+    }
+
+    /**
+     *  Creates a service over a fully compiled graph
+     * @param graph          Immutable graph snapshot to serve queries from
+     * @param precompute     If true, all-pairs routes are computed up front and queries become table walks
+     * @param cacheSize      Number of country pairs to cache, or 0 for no cache (ignored when precomputed)
+     * @param cacheTtlMillis Time a cached route stays valid, or 0 to never expire
+     * @param strategy       Search algorithm for point-to-point queries
+     */
+    public RouteService (CountryGraph graph, boolean precompute, int cacheSize, long cacheTtlMillis,
+                         PathFinder.Strategy strategy) {
+        this.graph = graph;
+        this.pathFinder = new PathFinder(graph, strategy);
+        this.precomputed = precompute ? new PrecomputedRoutes(graph, pathFinder) : null;
+        this.cache = cacheSize > 0 && !precompute ? new RouteCache(cacheSize, cacheTtlMillis) : null;
+        this.pareto = new ParetoRouter(graph, pathFinder);
+        this.closedBorders = Map.of();
+        this.edits = List.of();
+    }
+
+    /**
+     *  Wraps the parts of a service derived from another one (see updateBorder)
+     */
+    private RouteService (CountryGraph graph, PathFinder pathFinder, PrecomputedRoutes precomputed, RouteCache cache,
+                          Map<Long, int[]> closedBorders, List<BorderEdit> edits) {
+        this.graph = graph;
+        this.pathFinder = pathFinder;
+        this.precomputed = precomputed;
+        this.cache = cache;
+        this.pareto = new ParetoRouter(graph, pathFinder);
+        this.closedBorders = closedBorders;
+        this.edits = edits;
+    }
+
+    /**
+     *  Closes the border between two neighbors, e.g. when a crossing is shut
+     * @param country1 One country
+     * @param country2 The other country
+     * @return New service without the border; this one is unchanged and keeps answering queries
+     * @throws IllegalArgumentException If a name is unknown or the countries do not share an open border
+     */
+    public RouteService closeBorder (String country1, String country2) {
+        int a = require(country1);
+        int b = require(country2);
+        if (graph.edgeWeight(a, b) == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(country1 + " and " + country2 + " share no open border");
+        }
+        Map<Long, int[]> closed = new HashMap<>(closedBorders);
+        closed.put(pairKey(a, b), new int[]{graph.edgeWeight(a, b), graph.borderLength(a, b)});
+        return updateBorder(a, b, Integer.MAX_VALUE, 0, closed,
+                new BorderEdit(BorderEdit.Kind.CLOSE, country1, country2, 0));
+    }
+
+    /**
+     *  Reopens a border closed by closeBorder with its previous distance and length
+     * @param country1 One country
+     * @param country2 The other country
+     * @return New service with the border restored
+     * @throws IllegalArgumentException If a name is unknown or the border is not closed
+     */
+    public RouteService reopenBorder (String country1, String country2) {
+        int a = require(country1);
+        int b = require(country2);
+        Map<Long, int[]> closed = new HashMap<>(closedBorders);
+        int[] border = closed.remove(pairKey(a, b));
+        if (border == null) {
+            throw new IllegalArgumentException("The border between " + country1 + " and " + country2 + " is not closed");
+        }
+        return updateBorder(a, b, border[0], border[1], closed,
+                new BorderEdit(BorderEdit.Kind.REOPEN, country1, country2, 0));
+    }
+
+    /**
+     *  Changes the distance of an open border
+     * @param country1 One country
+     * @param country2 The other country
+     * @param km       New distance in km
+     * @return New service with the changed distance
+     * @throws IllegalArgumentException If a name is unknown, the border is not open or km is not positive
+     */
+    public RouteService reweightBorder (String country1, String country2, int km) {
+        int a = require(country1);
+        int b = require(country2);
+        if (graph.edgeWeight(a, b) == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(country1 + " and " + country2 + " share no open border");
+        }
+        if (km <= 0) {
+            throw new IllegalArgumentException("Distance must be positive: " + km);
+        }
+        return updateBorder(a, b, km, graph.borderLength(a, b), closedBorders,
+                new BorderEdit(BorderEdit.Kind.REWEIGHT, country1, country2, km));
+    }
+
+    /**
+     *  Builds the service for the graph with one changed border, repairing instead of rebuilding:
+     *  the precomputed tables only touch affected rows (PrecomputedRoutes.repair), and cached
+     *  routes that are provably still shortest are carried over. When a border gets longer or
+     *  closes, routes not using it stay shortest. When it gets shorter, routes using it stay
+     *  shortest, because they gain at least as much as any other route.
+     */
+    private RouteService updateBorder (int a, int b, int weight, int length, Map<Long, int[]> closed, BorderEdit edit) {
+        int oldWeight = graph.edgeWeight(a, b);
+        CountryGraph next = graph.withEdge(a, b, weight, length);
+        PathFinder finder = new PathFinder(next, pathFinder.getStrategy());
+
+        PrecomputedRoutes table = precomputed == null ? null : precomputed.repair(next, a, b, oldWeight, weight);
+        RouteCache nextCache = null;
+        if (cache != null) {
+            boolean longer = weight > oldWeight;
+            nextCache = cache.copyIf(path -> weight == oldWeight || uses(path, a, b) != longer);
+        }
+        List<BorderEdit> nextEdits = new ArrayList<>(edits.size() + 1);
+        nextEdits.addAll(edits);
+        nextEdits.add(edit);
+        return new RouteService(next, finder, table, nextCache, Map.copyOf(closed), List.copyOf(nextEdits));
+    }
+
+    /**
+     *  Re-applies every border change made to this service onto a service built from reloaded
+     *  files, oldest first. Changes that no longer apply (e.g. the reloaded files dropped the
+     *  border) are skipped with a message.
+     * @param next Service of the reloaded graph, without border changes
+     * @return next with the changes
+     */
+    RouteService replayOnto (RouteService next) {
+        for (BorderEdit edit : edits) {
+            try {
+                next = edit.applyTo(next);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Skipped border change after reload: " + e.getMessage());
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @return True if a and b are consecutive on path
+     */
+    private static boolean uses (int[] path, int a, int b) {
+        for (int i = 1; i < path.length; i++) {
+            if ((path[i - 1] == a && path[i] == b) || (path[i - 1] == b && path[i] == a)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long pairKey (int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private int require (String countryName) {
+        int id = graph.idOf(countryName);
+        if (id < 0) {
+            throw new IllegalArgumentException("Unknown country: " + countryName);
+        }
+        return id;
+    }
+
+    public CountryGraph getGraph () {
+        return graph;
+    }
+
+    public ParetoRouter getParetoRouter () {
+        return pareto;
+    }
+
+    public PathFinder getPathFinder () {
+        return pathFinder;
+    }
+
+    /**
+     * @return The all-pairs tables, or null if the service was not precomputed
+     */
+    public PrecomputedRoutes getPrecomputed () {
+        return precomputed;
+    }
+
+    /**
+     * @return The route cache, or null if caching is off
+     */
+    public RouteCache getCache () {
+        return cache;
+    }
+
+    /**
+     *  Checks whether a country name can be routed
+     * @param countryName Full name of the country
+     * @return True if the name resolves to a country in the snapshot
+     */
+    public boolean isKnown (String countryName) {
+        return graph.idOf(countryName) >= 0;
+    }
+
+    /**
+     *  Suggests countries for partial or misspelled input
+     * @param query Text typed so far
+     * @param limit Maximum number of suggestions
+     * @return Display names, best match first
+     */
+    public List<String> suggest (String query, int limit) {
+        return graph.suggest(query, limit);
+    }
+
+    /**
+     *  Returns the shortest path between the 2 countries
+     * @param country1 Origin country
+     * @param country2 Destination country
+     * @return Names of every country on the path, in order (unmodifiable). Empty if either name
+     *         is unknown or no path exists
+     */
+    public List<String> findPath (String country1, String country2) {
+        return findRoute(country1, country2).path();
+    }
+
+    /**
+     *  Returns the shortest route between the 2 countries and why there is none.
+     *  Countries in different components are rejected in O(1), without a search.
+     * @param country1 Origin country
+     * @param country2 Destination country
+     * @return The route and its distance, or the reason no route was found
+     */
+    public RouteResult findRoute (String country1, String country2) {
+        return findRoute(graph.idOf(country1), graph.idOf(country2));
+    }
+
+    /**
+     *  Returns the shortest route between two country ids and why there is none
+     * @param source Id of originating country, negative if the name was unknown
+     * @param target Id of destination country, negative if the name was unknown
+     * @return The route and its distance, or the reason no route was found
+     */
+    RouteResult findRoute (int source, int target) {
+        if (source < 0 || target < 0) {
+            return RouteResult.unknownCountry();
+        }
+        if (!graph.connected(source, target)) {
+            return RouteResult.unreachable();
+        }
+        int[] path = sharedRoute(source, target);
+        if (path.length == 0) {
+            return RouteResult.unreachable();
+        }
+        int distance = 0;
+        for (int i = 1; i < path.length; i++) {
+            distance += graph.edgeWeight(path[i - 1], path[i]);
+        }
+        return RouteResult.found(graph.namesOf(path), distance);
+    }
+
+    /**
+     *  Returns the shortest path between two country ids, from the precomputed
+     *  tables, the cache or a new search
+     * @param source Id of originating country
+     * @param target Id of destination country
+     * @return Ids of every country on the path, in order, as a copy the caller may modify.
+     *         Empty if no path exists
+     */
+    public int[] route (int source, int target) {
+        return sharedRoute(source, target).clone();
+    }
+
+    /**
+     *  Like route, but may return the array held by the precomputed tables or the cache,
+     *  which every thread shares. Callers must only read it.
+     */
+    int[] sharedRoute (int source, int target) {
+        if (precomputed != null) {
+            return precomputed.path(source, target);
+        }
+        if (cache == null) {
+            return pathFinder.dijkstra(source, target);
+        }
+
+        int[] path = cache.get(source, target);
+        if (path == null) {
+            path = pathFinder.dijkstra(source, target);
+            //  Unreachable pairs are not cached
+            if (path.length > 0) {
+                cache.put(source, target, path);
+            }
+        }
+        return path;
+    }
+
+    /**
+     *  Returns the shortest path from one origin to many destinations with a single search
+     * @param origin       Origin country
+     * @param destinations Destination countries
+     * @return One path per destination, in the same order, each unmodifiable. Empty for unknown
+     *         names and for destinations that cannot be reached, as findPath returns them
+     */
+    public List<List<String>> findPaths (String origin, Collection<String> destinations) {
+        int source = graph.idOf(origin);
+        int[] targets = resolve(destinations);
+        int[] known = knownOnly(targets);
+
+        int[][] paths = new int[known.length][];
+        if (source >= 0 && known.length > 0) {
+            if (precomputed != null) {
+                for (int i = 0; i < known.length; i++) {
+                    paths[i] = precomputed.path(source, known[i]);
+                }
+            }
+            else {
+                pathFinder.oneToMany(source, known, new int[known.length], paths);
+            }
+        }
+
+        List<List<String>> out = new ArrayList<>(targets.length);
+        for (int i = 0, k = 0; i < targets.length; i++) {
+            if (source < 0 || targets[i] < 0) {
+                out.add(List.of());
+                continue;
+            }
+            int[] path = paths[k++];
+            out.add(path.length > 0 ? graph.namesOf(path) : List.of());
+        }
+        return out;
+    }
+
+    /**
+     *  Returns the shortest path that avoids some countries and/or crosses at most maxHops borders.
+     *  Constrained routes bypass the precomputed tables and the cache.
+     * @param country1 Origin country
+     * @param country2 Destination country
+     * @param avoid    Countries the path must not enter
+     * @param maxHops  Maximum number of border crossings, or 0 for no limit
+     * @return Names of every country on the path, in order (unmodifiable). Empty if either name
+     *         is unknown or no allowed path exists
+     * @throws IllegalArgumentException If an avoided country is unknown
+     */
+    public List<String> findPath (String country1, String country2, Collection<String> avoid, int maxHops) {
+        RouteConstraints constraints = constraints(avoid, maxHops);
+        int source = graph.idOf(country1);
+        int target = graph.idOf(country2);
+
+        if (source < 0 || target < 0) {
+            return List.of();
+        }
+        int[] path = constraints.isNone() ? sharedRoute(source, target)
+                : pathFinder.constrainedPath(source, target, constraints);
+        return path.length > 0 ? graph.namesOf(path) : List.of();
+    }
+
+    /**
+     *  Returns up to k alternative routes, shortest first (see PathFinder.kShortestPaths)
+     * @param country1 Origin country
+     * @param country2 Destination country
+     * @param k        Maximum number of routes
+     * @param avoid    Countries no route may enter
+     * @param maxHops  Maximum number of border crossings per route, or 0 for no limit
+     * @return Names of every country on each route. Empty if either name is unknown
+     * @throws IllegalArgumentException If an avoided country is unknown
+     */
+    public List<List<String>> findAlternatives (String country1, String country2, int k, Collection<String> avoid,
+                                                int maxHops) {
+        RouteConstraints constraints = constraints(avoid, maxHops);
+        int source = graph.idOf(country1);
+        int target = graph.idOf(country2);
+
+        List<List<String>> out = new ArrayList<>();
+        if (source >= 0 && target >= 0) {
+            for (int[] path : pathFinder.kShortestPaths(source, target, k, constraints)) {
+                out.add(graph.namesOf(path));
+            }
+        }
+        return out;
+    }
+
+    /**
+     *  Returns every route that trades distance against border crossings (see ParetoRouter)
+     * @param country1 Origin country
+     * @param country2 Destination country
+     * @return Names of every country on each route, fewest crossings first and shortest last.
+     *         Empty if either name is unknown or the countries are not connected
+     */
+    public List<List<String>> findParetoPaths (String country1, String country2) {
+        int source = graph.idOf(country1);
+        int target = graph.idOf(country2);
+
+        List<List<String>> out = new ArrayList<>();
+        if (source >= 0 && target >= 0) {
+            for (ParetoRouter.Route route : pareto.routes(source, target)) {
+                out.add(graph.namesOf(route.path()));
+            }
+        }
+        return out;
+    }
+
+    private RouteConstraints constraints (Collection<String> avoid, int maxHops) {
+        int[] ids = new int[avoid.size()];
+        int i = 0;
+        for (String name : avoid) {
+            ids[i++] = require(name);
+        }
+        return RouteConstraints.of(ids, maxHops);
+    }
+
+    /**
+     *  Builds the table of route distances between every origin and every destination
+     *  on the common fork-join pool
+     * @see #distanceMatrix(Collection, Collection, ForkJoinPool)
+     */
+    public DistanceMatrix distanceMatrix (Collection<String> origins, Collection<String> destinations) {
+        return distanceMatrix(origins, destinations, ForkJoinPool.commonPool());
+    }
+
+    /**
+     *  Builds the table of route distances between every origin and every destination.
+     *  Each origin runs one search that stops once all destinations are settled;
+     *  origins are fanned out over the pool.
+     * @param origins      Origin countries, one row each
+     * @param destinations Destination countries, one column each
+     * @param pool         Pool running one task per origin
+     * @return Distances in km, Integer.MAX_VALUE for unknown names or unreachable pairs
+     */
+    public DistanceMatrix distanceMatrix (Collection<String> origins, Collection<String> destinations,
+                                          ForkJoinPool pool) {
+        int[] sources = resolve(origins);
+        int[] targets = resolve(destinations);
+        int[] known = knownOnly(targets);
+        DistanceMatrix matrix = new DistanceMatrix(sources.length, targets.length);
+
+        pool.submit(() -> IntStream.range(0, sources.length).parallel().forEach(row -> {
+            int source = sources[row];
+            if (source < 0) {
+                return;
+            }
+
+            int[] found = new int[known.length];
+            if (precomputed != null) {
+                for (int i = 0; i < known.length; i++) {
+                    found[i] = precomputed.distance(source, known[i]);
+                }
+            }
+            else {
+                pathFinder.oneToMany(source, known, found, null);
+            }
+
+            int[] values = new int[targets.length];
+            for (int col = 0, k = 0; col < targets.length; col++) {
+                values[col] = targets[col] < 0 ? Integer.MAX_VALUE : found[k++];
+            }
+            matrix.setRow(row, values);
+        })).join();
+
+        return matrix;
+    }
+
+    /**
+     * @return Id of every name, -1 for unknown names
+     */
+    private int[] resolve (Collection<String> names) {
+        int[] ids = new int[names.size()];
+        int i = 0;
+        for (String name : names) {
+            ids[i++] = graph.idOf(name);
+        }
+        return ids;
+    }
+
+    private static int[] knownOnly (int[] ids) {
+        return Arrays.stream(ids).filter(id -> id >= 0).toArray();
+    }
+
+    /**
+     *  Total length of the shortest route between two countries
+     * @param country1 Origin country
+     * @param country2 Destination country
+     * @return Distance in km, or Integer.MAX_VALUE if unknown or unreachable
+     */
+    public int getRouteDistance (String country1, String country2) {
+        int source = graph.idOf(country1);
+        int target = graph.idOf(country2);
+
+        if (source < 0 || target < 0) {
+            return Integer.MAX_VALUE;
+        }
+        if (precomputed != null) {
+            return precomputed.distance(source, target);
+        }
+        return pathFinder.shortestDistance(source, target);
+    }
+
+    /**
+     *  Retrieves the distance in km between the capitals of two neighboring countries
+     * @param country1 Originating country
+     * @param country2 Destination country
+     * @return Distance in km, or Integer.MAX_VALUE if they are not neighbors
+     */
+    public int getDistance (String country1, String country2) {
+        return graph.edgeWeight(graph.idOf(country1), graph.idOf(country2));
+    }
+
+    /**
+     *  Retrieves the distance in km between the capitals of any two countries in O(1)
+     *  (see CapitalDistances). Unlike getDistance the countries need not be neighbors.
+     * @param country1 One country
+     * @param country2 The other country
+     * @return Distance in km, or Integer.MAX_VALUE if a name or the distance is unknown
+     */
+    public int getCapitalDistance (String country1, String country2) {
+        return graph.capitalDistance(graph.idOf(country1), graph.idOf(country2));
+    }
+
+    /**
+     *  Retrieves the length in km of the border shared by two neighboring countries
+     * @param country1 One country
+     * @param country2 The other country
+     * @return Length in km (0 if the borders file gives none), or Integer.MAX_VALUE if they are not neighbors
+     */
+    public int getBorderLength (String country1, String country2) {
+        return graph.borderLength(graph.idOf(country1), graph.idOf(country2));
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ *  Bounded pool of search working memory. A query borrows a buffer, runs in it and gives it
+ *  back, so buffers are kept per concurrent query instead of per thread. A server running every
+ *  request on a new virtual thread then reuses a few buffers rather than allocating O(n) scratch
+ *  space for each request. At most 'retained' idle buffers are kept: buffers made during a burst
+ *  beyond that are left to the garbage collector when they come back.
+ */
+final class ScratchPool<T> {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final Supplier<T> factory;
+    private final int retained;
+    private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     *  Creates an empty pool keeping one idle buffer per processor
+     * @param factory Creates a buffer when none is idle
+     */
+    ScratchPool (Supplier<T> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     *  Creates an empty pool
+     * @param factory  Creates a buffer when none is idle
+     * @param retained Most idle buffers kept
+     */
+    ScratchPool (Supplier<T> factory, int retained) {
+        this.factory = factory;
+        this.retained = Math.max(1, retained);
+    }
+
+    /**
+     * @return An idle buffer, or a new one if there is none. Must be given back with release()
+     */
+    T borrow () {
+        T scratch = idle.poll();
+        if (scratch == null) {
+            return factory.get();
+        }
+        idleCount.decrementAndGet();
+        return scratch;
+    }
+
+    /**
+     *  Gives a borrowed buffer back, to be reused unless the pool already holds 'retained' of them
+     * @param scratch Buffer from borrow(), reset and no longer used by the caller
+     */
+    void release (T scratch) {
+        if (idleCount.incrementAndGet() <= retained) {
+            idle.offer(scratch);
+        }
+        else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.Arrays;
+
+/**
+ *  Working memory for one shortest-path search. Allocated once for the size of
+ *  a graph, pooled by PathFinder and reused by one query at a time. Only the ids
+ *  touched by the last search are reset, so the cost of a reset follows the
+ *  size of the search and not the size of the graph.
+ */
+final class SearchScratch {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    final int[] distance;
+    final int[] parent;
+    final boolean[] settled;
+    final boolean[] wanted;
+    final IndexedMinHeap heap;
+    private final int[] touched;
+    private int touchedCount;
+    private SearchScratch reverse;
+    private int[] layerDistance;
+    private int[] layerParent;
+
+    //  Work done by the last query, kept until the next one starts
+    int settledCount;
+    int relaxedCount;
+
+    /**
+     *  Creates scratch space for a graph of 'size' countries
+     * @param size Number of ids in the graph
+     */
+    SearchScratch (int size) {
+        distance = new int[size];
+        parent = new int[size];
+        settled = new boolean[size];
+        wanted = new boolean[size];
+        touched = new int[size];
+        heap = new IndexedMinHeap(size);
+
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        Arrays.fill(parent, -1);
+    }
+
+    int capacity () {
+        return distance.length;
+    }
+
+    /**
+     *  Second scratch space for the backward half of a bidirectional search, created on first use
+     */
+    SearchScratch reverse () {
+        if (reverse == null) {
+            reverse = new SearchScratch(capacity());
+        }
+        return reverse;
+    }
+
+    /**
+     * @return The backward scratch space if a bidirectional search created one, otherwise null
+     */
+    SearchScratch reverseIfCreated () {
+        return reverse;
+    }
+
+    /**
+     *  Two rows of distances for hop-layered searches, created on first use
+     */
+    int[] layerDistance () {
+        if (layerDistance == null) {
+            layerDistance = new int[2 * capacity()];
+        }
+        return layerDistance;
+    }
+
+    /**
+     *  Parent table for hop-layered searches, grown on demand and kept for later queries
+     * @param layers Number of layers needed
+     */
+    int[] layerParent (int layers) {
+        if (layerParent == null || layerParent.length < layers * capacity()) {
+            layerParent = new int[layers * capacity()];
+        }
+        return layerParent;
+    }
+
+    /**
+     *  Records a tentative distance for id, remembering it for the next reset
+     * @param id       Id reached
+     * @param dist     Distance from the source
+     * @param from     Id it was reached from (-1 for the source)
+     */
+    void reach (int id, int dist, int from) {
+        if (distance[id] == Integer.MAX_VALUE) {
+            touched[touchedCount++] = id;
+        }
+        distance[id] = dist;
+        parent[id] = from;
+    }
+
+    /**
+     *  Restores every touched id to its initial state
+     */
+    void reset () {
+        for (int i = 0; i < touchedCount; i++) {
+            int id = touched[i];
+            distance[id] = Integer.MAX_VALUE;
+            parent[id] = -1;
+            settled[id] = false;
+        }
+        touchedCount = 0;
+        heap.clear();
+
+        if (reverse != null) {
+            reverse.reset();
+        }
+    }
+}
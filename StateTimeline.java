@@ -0,0 +1,141 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ *  Every row of the stateNames file with its validity interval, indexed by epoch.
+ *  An epoch is a maximal date range over which the set of valid states does not change;
+ *  the epoch boundaries are every start date and every day after an end date, sorted.
+ *  Finding the epoch of a date is one binary search; the states of an epoch are found
+ *  once, when its graph is built (see TemporalRoutes).
+ *  <p>
+ *  The file ends every current state on END_OF_DATA; those intervals are treated as open,
+ *  so all later dates fall into the last (present-day) epoch.
+ */
+public final class StateTimeline {
+    /** End date the stateNames file gives to states that still exist */
+    public static final LocalDate END_OF_DATA = LocalDate.of(2020, 12, 31);
+
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final String[] lines;
+    private final long[] start;     //  Epoch days, inclusive
+    private final long[] end;       //  Epoch days, inclusive, Long.MAX_VALUE if still valid
+    private final long[] boundaries;
+
+    private StateTimeline (String[] lines, long[] start, long[] end) {
+        this.lines = lines;
+        this.start = start;
+        this.end = end;
+
+        long[] days = new long[2 * lines.length];
+        int count = 0;
+        for (int i = 0; i < lines.length; i++) {
+            days[count++] = start[i];
+            if (end[i] != Long.MAX_VALUE) {
+                days[count++] = end[i] + 1;
+            }
+        }
+        this.boundaries = Arrays.stream(days, 0, count).sorted().distinct().toArray();
+    }
+
+    /**
+     *  Collects rows in file order
+     */
+    public static final class Builder {
+        private String[] lines = new String[256];
+        private long[] start = new long[256];
+        private long[] end = new long[256];
+        private int size;
+
+        /**
+         *  Adds one data row of the stateNames file
+         * @param line Tab separated: number, code, name, start date, end date
+         * @return True if the state is still valid at END_OF_DATA
+         */
+        public boolean add (String line) {
+            String[] fields = line.split("\t");
+            LocalDate to = LocalDate.parse(fields[4]);
+            if (size == lines.length) {
+                lines = Arrays.copyOf(lines, size * 2);
+                start = Arrays.copyOf(start, size * 2);
+                end = Arrays.copyOf(end, size * 2);
+            }
+            lines[size] = line;
+            start[size] = LocalDate.parse(fields[3]).toEpochDay();
+            end[size++] = to.isBefore(END_OF_DATA) ? to.toEpochDay() : Long.MAX_VALUE;
+            return !to.isBefore(END_OF_DATA);
+        }
+
+        public StateTimeline build () {
+            return new StateTimeline(Arrays.copyOf(lines, size), Arrays.copyOf(start, size), Arrays.copyOf(end, size));
+        }
+    }
+
+    /**
+     *  Reads every row of a stateNames file
+     * @param filename Name of the stateNames file
+     * @return The indexed rows
+     */
+    public static StateTimeline read (String filename) throws IOException {
+        Builder builder = new Builder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            //  Skip header
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    builder.add(line);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param date Any date
+     * @return Epoch holding the date, or -1 if it is before the first state
+     */
+    public int epochOf (LocalDate date) {
+        int i = Arrays.binarySearch(boundaries, date.toEpochDay());
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * @return Number of epochs
+     */
+    public int epochCount () {
+        return boundaries.length;
+    }
+
+    /**
+     * @return True for the last epoch, whose states are the ones still valid at END_OF_DATA
+     */
+    public boolean isPresent (int epoch) {
+        return epoch == boundaries.length - 1;
+    }
+
+    /**
+     * @param epoch Epoch index
+     * @return First day of the epoch
+     */
+    public LocalDate startOf (int epoch) {
+        return LocalDate.ofEpochDay(boundaries[epoch]);
+    }
+
+    /**
+     *  Finds the rows valid throughout one epoch
+     * @param epoch Epoch index
+     * @return The rows in file order, formatted as in the stateNames file
+     */
+    public String[] rowsIn (int epoch) {
+        long day = boundaries[epoch];
+        return IntStream.range(0, lines.length).filter(i -> start[i] <= day && day <= end[i])
+                .mapToObj(i -> lines[i]).toArray(String[]::new);
+    }
+}
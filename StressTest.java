@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *  Multi-threaded check of RouteService: N virtual threads query random country pairs
+ *  at once and every answer (findPath, getRouteDistance, getDistance) is compared with
+ *  the answer the same service gave single-threaded. Runs once per search strategy with
+ *  no cache, so every query searches, and once with the route cache. The cache serves B -> A
+ *  by reversing the path of A -> B, so with ties its path depends on which direction was asked
+ *  first: there any path of the single-threaded length between the same countries is accepted.
+ *  Exits with status 1 if any answer differs.
+ *  Run: java StressTest [threads] [queries per thread] [seed]
+ */
+public class StressTest {
+    private static final String[] FILES = {"borders.txt", "capdist.csv", "state_name.tsv"};
+    private static final int SHOWN = 10;           //  Mismatches printed per service
+
+    /**
+     *  Answers of one service for every ordered pair of ids, indexed [source * size + target]
+     */
+    private record Expected(List<List<String>> paths, int[] routeKm, int[] borderKm) {
+    }
+
+    public static void main (String[] args) throws IOException, InterruptedException, ExecutionException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 245L;
+
+        new IRoadTrip(FILES);
+        CountryGraph graph = CountryGraph.compile(Countries.getInstance());
+
+        long mismatches = 0;
+        for (PathFinder.Strategy strategy : PathFinder.Strategy.values()) {
+            mismatches += run(strategy.name(), new RouteService(graph, false, 0, 0, strategy),
+                    true, threads, queries, seed);
+        }
+        mismatches += run("DIJKSTRA + cache", new RouteService(graph, false, 1024, 0, PathFinder.Strategy.DIJKSTRA),
+                false, threads, queries, seed);
+
+        if (mismatches > 0) {
+            System.out.println("FAILED: " + mismatches + " answers differ from the single-threaded ones");
+            System.exit(1);
+        }
+        System.out.println("OK: every concurrent answer matches the single-threaded one");
+    }
+
+    /**
+     *  Queries one service from 'threads' virtual threads started together
+     * @param exactPaths If false, a path only has to be as long as the single-threaded one
+     * @return Number of answers that differ from the single-threaded ones
+     */
+    private static long run (String name, RouteService service, boolean exactPaths, int threads, int queries,
+                             long seed)
+            throws InterruptedException, ExecutionException {
+        CountryGraph graph = service.getGraph();
+        int size = graph.size();
+        Expected expected = expect(service);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>(threads);
+        long startNanos;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(seed + t);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long wrong = 0;
+                    for (int q = 0; q < queries; q++) {
+                        int source = random.nextInt(size);
+                        int target = random.nextInt(size);
+                        String from = graph.nameOf(source);
+                        String to = graph.nameOf(target);
+                        int pair = source * size + target;
+                        List<String> path = service.findPath(from, to);
+                        List<String> expectedPath = expected.paths().get(pair);
+                        if (!exactPaths && sameRoute(graph, expectedPath, path, expected.routeKm()[pair])) {
+                            path = expectedPath;
+                        }
+                        wrong += check(name, from, to, "findPath", expectedPath, path, wrong);
+                        wrong += check(name, from, to, "getRouteDistance",
+                                expected.routeKm()[pair], service.getRouteDistance(from, to), wrong);
+                        wrong += check(name, from, to, "getDistance",
+                                expected.borderKm()[pair], service.getDistance(from, to), wrong);
+                    }
+                    return wrong;
+                }));
+            }
+            startNanos = System.nanoTime();
+            start.countDown();
+        }
+
+        long wrong = 0;
+        for (Future<Long> result : results) {
+            wrong += result.get();
+        }
+        System.out.printf("%-18s %,d threads x %,d pairs in %d ms, %d mismatches%n", name, threads, queries,
+                (System.nanoTime() - startNanos) / 1_000_000, wrong);
+        return wrong;
+    }
+
+    /**
+     *  Single-threaded answers of the service for every pair
+     */
+    private static Expected expect (RouteService service) {
+        CountryGraph graph = service.getGraph();
+        int size = graph.size();
+        List<List<String>> paths = new ArrayList<>(size * size);
+        int[] routeKm = new int[size * size];
+        int[] borderKm = new int[size * size];
+        for (int source = 0; source < size; source++) {
+            for (int target = 0; target < size; target++) {
+                String from = graph.nameOf(source);
+                String to = graph.nameOf(target);
+                paths.add(service.findPath(from, to));
+                routeKm[source * size + target] = service.getRouteDistance(from, to);
+                borderKm[source * size + target] = service.getDistance(from, to);
+            }
+        }
+        return new Expected(paths, routeKm, borderKm);
+    }
+
+    /**
+     * @return True if both paths join the same countries and 'actual' is a route of 'km' in total
+     */
+    private static boolean sameRoute (CountryGraph graph, List<String> expected, List<String> actual, int km) {
+        if (expected.isEmpty() || actual.isEmpty()) {
+            return expected.equals(actual);
+        }
+        if (!expected.get(0).equals(actual.get(0)) || !expected.getLast().equals(actual.getLast())) {
+            return false;
+        }
+        long length = 0;
+        for (int i = 1; i < actual.size(); i++) {
+            int weight = graph.edgeWeight(graph.idOf(actual.get(i - 1)), graph.idOf(actual.get(i)));
+            if (weight == Integer.MAX_VALUE) {
+                return false;
+            }
+            length += weight;
+        }
+        return length == km;
+    }
+
+    /**
+     * @param shown Mismatches this thread has found so far, only the first few are printed
+     * @return 1 if the answer differs from the expected one, otherwise 0
+     */
+    private static int check (String name, String from, String to, String query, Object expected, Object actual,
+                              long shown) {
+        if (expected.equals(actual)) {
+            return 0;
+        }
+        if (shown < SHOWN) {
+            System.out.printf("%s: %s(%s, %s) returned %s, single-threaded %s%n", name, query, from, to,
+                    actual, expected);
+        }
+        return 1;
+    }
+}
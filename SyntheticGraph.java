@@ -0,0 +1,82 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  Generates country-like graphs of any size for scaling tests. Countries are placed on a
+ *  jittered square grid (cells of ~250 km) and border their right and lower grid neighbors,
+ *  plus one random diagonal per cell, which keeps the graph planar, connected and close to
+ *  the degree of the real border graph. Edge weights are the distances between the jittered points.
+ */
+public final class SyntheticGraph {
+
+    private SyntheticGraph () {
+    }
+
+    /**
+     *  Builds a synthetic graph
+     * @param size Number of countries
+     * @param seed Random seed, equal seeds give equal graphs
+     * @return Compiled graph with names "C0".."C{size-1}"
+     */
+    public static CountryGraph generate (int size, long seed) {
+        Random random = new Random(seed);
+        int side = (int) Math.ceil(Math.sqrt(size));
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int id = 0; id < size; id++) {
+            x[id] = (id % side + random.nextDouble() * 0.6) * 250;
+            y[id] = (id / side + random.nextDouble() * 0.6) * 250;
+        }
+
+        int[] from = new int[size * 3];
+        int[] to = new int[size * 3];
+        int edges = 0;
+        for (int id = 0; id < size; id++) {
+            int right = id % side + 1 < side ? id + 1 : -1;
+            int down = id + side;
+            if (right != -1 && right < size) {
+                from[edges] = id;
+                to[edges++] = right;
+            }
+            if (down < size) {
+                from[edges] = id;
+                to[edges++] = down;
+            }
+            if (right != -1 && down + 1 < size) {
+                boolean forward = random.nextBoolean();
+                from[edges] = forward ? id : right;
+                to[edges++] = forward ? down + 1 : down;
+            }
+        }
+
+        //  Count degrees, then place both directions of every edge
+        int[] offsets = new int[size + 1];
+        for (int e = 0; e < edges; e++) {
+            offsets[from[e] + 1]++;
+            offsets[to[e] + 1]++;
+        }
+        for (int id = 0; id < size; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+        int[] fill = Arrays.copyOf(offsets, size);
+        int[] targets = new int[edges * 2];
+        int[] weights = new int[edges * 2];
+        for (int e = 0; e < edges; e++) {
+            int a = from[e];
+            int b = to[e];
+            int km = (int) Math.round(Math.hypot(x[a] - x[b], y[a] - y[b]));
+            targets[fill[a]] = b;
+            weights[fill[a]++] = km;
+            targets[fill[b]] = a;
+            weights[fill[b]++] = km;
+        }
+
+        String[] names = new String[size];
+        String[] codes = new String[size];
+        for (int id = 0; id < size; id++) {
+            names[id] = "C" + id;
+            codes[id] = Integer.toString(id, 36).toUpperCase();
+        }
+        return new CountryGraph(names, codes, offsets, targets, weights);
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Dictionary;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ *  Routing as of any date since 1816 over the states valid on that date.
+ *  The stateNames rows are indexed once by epoch (see StateTimeline). The RouteService of
+ *  an epoch is built the first time a date inside it is asked for and cached, so a
+ *  historical query costs one binary search and one map lookup more than a present-day one.
+ *  Dates in the last epoch use the present-day service, including border updates.
+ *  <p>
+ *  The borders file only describes present-day borders. A historical graph holds the
+ *  borders of that file whose names resolve to states of the epoch, with the capital
+ *  distances of the capdist file (which covers historical states as well).
+ *  Nothing is read until the first historical query.
+ */
+public final class TemporalRoutes {
+    /*
+     ************************
+     *  Private Properties  *
+     ************************
+     */
+    private final Supplier<StateTimeline> timeline;
+    private final Supplier<RouteService> present;
+    private final Function<CountryGraph, RouteService> factory;
+    private final String stateNames;
+    private final String borders;
+    private final String capDist;
+    private volatile History history;
+
+    /**
+     *  Inputs shared by every epoch, and the services built so far
+     */
+    private record History(StateTimeline timeline, List<Dictionary<String, List<String>>> borders,
+                           CapDistTable capDist, Map<Integer, RouteService> epochs) {
+    }
+
+    /**
+     * @param timeline   Rows of the stateNames file if it was parsed (see IRoadTrip.getStateTimeline),
+     *                   null when the graph came from a snapshot
+     * @param present    Current present-day service
+     * @param factory    Creates the RouteService of an epoch graph
+     * @param stateNames Path of the stateNames file
+     * @param borders    Path of the borders file
+     * @param capDist    Path of the capDist file
+     */
+    public TemporalRoutes (Supplier<StateTimeline> timeline, Supplier<RouteService> present,
+                           Function<CountryGraph, RouteService> factory, String stateNames, String borders,
+                           String capDist) {
+        this.timeline = timeline;
+        this.present = present;
+        this.factory = factory;
+        this.stateNames = stateNames;
+        this.borders = borders;
+        this.capDist = capDist;
+    }
+
+    /**
+     *  Returns the service answering queries as of a date
+     * @param asOf Any date
+     * @return Service over the states valid on that date
+     */
+    public RouteService routesAsOf (LocalDate asOf) {
+        History current = history();
+        int epoch = current.timeline().epochOf(asOf);
+        if (epoch >= 0 && current.timeline().isPresent(epoch)) {
+            return present.get();
+        }
+        return current.epochs().computeIfAbsent(epoch, e -> factory.apply(build(current, e)));
+    }
+
+    /**
+     * @return Number of epochs whose service has been built
+     */
+    public int getCachedEpochs () {
+        History current = history;
+        return current == null ? 0 : current.epochs().size();
+    }
+
+    /**
+     *  Drops every historical service and the inputs they were built from,
+     *  they are read again on the next historical query (see GraphReloader)
+     */
+    public void invalidate () {
+        history = null;
+    }
+
+    private History history () {
+        History current = history;
+        if (current == null) {
+            synchronized (this) {
+                current = history;
+                if (current == null) {
+                    current = history = load();
+                }
+            }
+        }
+        return current;
+    }
+
+    private History load () {
+        StateTimeline rows = timeline.get();
+        if (rows == null) {
+            //  Loaded from a snapshot, the stateNames file was never parsed
+            try {
+                rows = StateTimeline.read(stateNames);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new History(rows, IRoadTrip.loadBorders(borders), IRoadTrip.loadCapDistance(capDist),
+                new ConcurrentHashMap<>());
+    }
+
+    /**
+     *  Compiles the graph of one epoch: its states, named as Countries.addCountryInfo names
+     *  them, and every border of the file between two of them
+     * @param epoch Epoch index, -1 for the empty graph before the first state
+     */
+    private static CountryGraph build (History history, int epoch) {
+        Map<String, String[]> states = new LinkedHashMap<>();
+        for (String row : epoch < 0 ? new String[0] : history.timeline().rowsIn(epoch)) {
+            String[] data = row.split("\t");
+            String name = data[2].split(" \\(")[0].split("/")[0];
+            states.putIfAbsent(name.toLowerCase(), new String[]{name.intern(), data[1].intern()});
+        }
+
+        int size = states.size();
+        String[] names = new String[size];
+        String[] codes = new String[size];
+        int id = 0;
+        for (String[] state : states.values()) {
+            names[id] = state[0];
+            codes[id++] = state[1];
+        }
+
+        CountryGraph isolated = new CountryGraph(names, codes, new int[size + 1], new int[0], new int[0]);
+        return isolated.withBorders(isolated.resolveBorders(history.borders()), history.capDist()).byComponent();
+    }
+}
@@ -0,0 +1,36 @@
+package jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.LongSupplier;
+
+/**
+ *  Reaches the benchmark cases of the default-package Benchmarks class, which code in a named
+ *  package (as JMH requires) cannot refer to by name. The class is found by its binary name
+ *  and operation() called through a method handle, once per trial.
+ */
+final class Cases {
+
+    private Cases () {
+    }
+
+    /**
+     * @see Benchmarks#operation in the default package
+     */
+    static LongSupplier operation (String name, String dataset, String strategy) {
+        try {
+            MethodHandle operation = MethodHandles.publicLookup().findStatic(Class.forName("Benchmarks"),
+                    "operation", MethodType.methodType(LongSupplier.class, String.class, String.class, String.class));
+            return (LongSupplier) operation.invoke(name, dataset, strategy);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Benchmarks.operation is not available: " + e, e);
+        }
+    }
+
+    static LongSupplier operation (String name) {
+        return operation(name, "", "");
+    }
+}
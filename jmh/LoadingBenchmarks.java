@@ -0,0 +1,58 @@
+package jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *  IRoadTrip construction (from the snapshot and by parsing every file) and the loaders
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class LoadingBenchmarks {
+    private LongSupplier constructSnapshot;
+    private LongSupplier constructParse;
+    private LongSupplier readCapDistance;
+    private LongSupplier setBorders;
+
+    @Setup
+    public void setup () {
+        constructSnapshot = Cases.operation("IRoadTrip.construct.snapshot");
+        constructParse = Cases.operation("IRoadTrip.construct.parse");
+        readCapDistance = Cases.operation("IRoadTrip.readCapDistance");
+        setBorders = Cases.operation("IRoadTrip.setBorders");
+    }
+
+    @Benchmark
+    public long constructSnapshot () {
+        return constructSnapshot.getAsLong();
+    }
+
+    @Benchmark
+    public long constructParse () {
+        return constructParse.getAsLong();
+    }
+
+    @Benchmark
+    public long readCapDistance () {
+        return readCapDistance.getAsLong();
+    }
+
+    @Benchmark
+    public long setBorders () {
+        return setBorders.getAsLong();
+    }
+}
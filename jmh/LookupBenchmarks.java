@@ -0,0 +1,50 @@
+package jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *  Name lookups on the bundled data, one country or neighbor per operation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class LookupBenchmarks {
+    private LongSupplier findCountry;
+    private LongSupplier getNeighborDist;
+
+    @Setup
+    public void setup () {
+        findCountry = Cases.operation("Countries.findCountry");
+        getNeighborDist = Cases.operation("Country.getNeighborDist");
+    }
+
+    /**
+     *  Countries.findCountry over every known name, in upper case like user input
+     */
+    @Benchmark
+    public long findCountry () {
+        return findCountry.getAsLong();
+    }
+
+    /**
+     *  Country.getNeighborDist over every border
+     */
+    @Benchmark
+    public long getNeighborDist () {
+        return getNeighborDist.getAsLong();
+    }
+}
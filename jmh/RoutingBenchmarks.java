@@ -0,0 +1,53 @@
+package jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *  PathFinder.dijkstra for every strategy, on the bundled data and on SyntheticGraph graphs.
+ *  Each operation is one query; the pairs are 256 random ones or the 16 whose Dijkstra search
+ *  settles the most countries. Building the 100k contraction hierarchy takes about two minutes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class RoutingBenchmarks {
+    @Param({"bundled", "synthetic-1000", "synthetic-10000", "synthetic-100000"})
+    public String dataset;
+
+    @Param({"DIJKSTRA", "BIDIRECTIONAL", "ASTAR", "CONTRACTION"})
+    public String strategy;
+
+    private LongSupplier random;
+    private LongSupplier worst;
+
+    @Setup
+    public void setup () {
+        random = Cases.operation("PathFinder.dijkstra.random", dataset, strategy);
+        worst = Cases.operation("PathFinder.dijkstra.worst", dataset, strategy);
+    }
+
+    @Benchmark
+    public long random () {
+        return random.getAsLong();
+    }
+
+    @Benchmark
+    public long worst () {
+        return worst.getAsLong();
+    }
+}